@@ -0,0 +1,139 @@
+// Row parsing benchmark for the dialect-specialized parsers.
+//
+// Compares the hardwired comma path (csv_row templates called directly, as
+// CSVManager::getRow did before dialect sniffing) against the RowParser picked
+// by makeRowParser() for each supported delimiter, on the same synthetic data.
+//
+// Build (host or NDK):
+//   cmake -S app/src/main/cpp -B build/bench -DDOKUMENTU_BUILD_BENCHMARKS=ON
+//   cmake --build build/bench --target dialect_benchmark
+
+#include "../csv_dialect.h"
+#include "../csv_row.h"
+#include <algorithm>
+#include <chrono>
+#include <cstdio>
+#include <cstring>
+#include <string>
+#include <vector>
+
+namespace {
+
+constexpr size_t ROW_COUNT = 200000;
+constexpr size_t COLUMN_COUNT = 24;
+constexpr int RUNS = 7;
+
+std::string makeData(char delimiter) {
+    std::string data;
+    data.reserve(ROW_COUNT * COLUMN_COUNT * 10);
+    for (size_t row = 0; row < ROW_COUNT; ++row) {
+        for (size_t column = 0; column < COLUMN_COUNT; ++column) {
+            if (column > 0) {
+                data.push_back(delimiter);
+            }
+            if (column % 6 == 5) {
+                // Some quoted cells containing the delimiter and escaped quotes
+                data += "\"v";
+                data.push_back(delimiter);
+                data += " \"\"q\"\"\"";
+            } else {
+                data += "cell" + std::to_string(row * 31 + column);
+            }
+        }
+        data.push_back('\n');
+    }
+    return data;
+}
+
+std::vector<std::string_view> splitRows(const std::string& data) {
+    std::vector<std::string_view> rows;
+    const char* begin = data.data();
+    const char* end = begin + data.size();
+    for (const char* p = begin; p < end;) {
+        const char* next = static_cast<const char*>(memchr(p, '\n', end - p));
+        if (next == nullptr) {
+            next = end;
+        }
+        rows.emplace_back(p, next - p);
+        p = next + 1;
+    }
+    return rows;
+}
+
+template <class ParseRow>
+double bestNanosPerRow(const std::vector<std::string_view>& rows, ParseRow parseRow) {
+    double best = 1e18;
+    size_t checksum = 0;
+    std::vector<std::string> cells;
+
+    for (int run = 0; run < RUNS; ++run) {
+        const auto start = std::chrono::steady_clock::now();
+        for (const auto row : rows) {
+            cells.clear();
+            parseRow(row, cells);
+            checksum += cells.size();
+        }
+        const auto nanos = std::chrono::duration<double, std::nano>(
+                std::chrono::steady_clock::now() - start).count();
+        best = std::min(best, nanos / static_cast<double>(rows.size()));
+    }
+
+    if (checksum != rows.size() * COLUMN_COUNT * RUNS) {
+        std::printf("  checksum mismatch: %zu\n", checksum);
+    }
+    return best;
+}
+
+void report(const char* label, double nanosPerRow, double baseline) {
+    std::printf("%-28s %8.1f ns/row  %+6.1f%%\n", label, nanosPerRow,
+                (nanosPerRow / baseline - 1.0) * 100.0);
+}
+
+} // namespace
+
+int main() {
+    const auto commaData = makeData(',');
+    const auto commaRows = splitRows(commaData);
+
+    // Baseline: comma/quote baked in at the call site, no virtual dispatch
+    const double baseline = bestNanosPerRow(commaRows, [](std::string_view row,
+                                                         std::vector<std::string>& cells) {
+        std::string scratch;
+        csv_row::forEachField<',', '"'>(row, SIZE_MAX, [&](size_t, std::string_view field) {
+            cells.emplace_back(csv_row::decodeField<'"'>(field, scratch));
+        });
+    });
+
+    std::printf("%zu rows x %zu columns, best of %d runs\n", ROW_COUNT, COLUMN_COUNT, RUNS);
+    report("hardwired comma (baseline)", baseline, baseline);
+
+    const struct {
+        const char* label;
+        char delimiter;
+    } dialects[] = {
+            {"sniffed comma", ','},
+            {"sniffed semicolon", ';'},
+            {"sniffed tab", '\t'},
+            {"sniffed pipe", '|'},
+    };
+
+    for (const auto& entry : dialects) {
+        const auto data = entry.delimiter == ',' ? commaData : makeData(entry.delimiter);
+        const auto rows = splitRows(data);
+
+        const auto dialect = csv_dialect::sniffDialect(
+                std::string_view(data.data(), std::min<size_t>(data.size(), 64 * 1024)), false);
+        if (dialect.delimiter != entry.delimiter) {
+            std::printf("%s: sniffed '%c' instead\n", entry.label, dialect.delimiter);
+        }
+
+        const auto parser = csv_dialect::makeRowParser(dialect);
+        const double nanos = bestNanosPerRow(rows, [&](std::string_view row,
+                                                       std::vector<std::string>& cells) {
+            parser->parseRow(row, cells);
+        });
+        report(entry.label, nanos, baseline);
+    }
+
+    return 0;
+}
@@ -0,0 +1,115 @@
+// Host-side correctness checks for dialect sniffing and the specialized row parsers.
+//
+// Build and run (host):
+//   cmake -S app/src/main/cpp -B build/checks -DDOKUMENTU_BUILD_HOST_CHECKS=ON
+//   cmake --build build/checks --target dialect_sniff_check
+//   ctest --test-dir build/checks
+
+#include "../csv_dialect.h"
+#include <cstdio>
+#include <string>
+#include <vector>
+
+namespace {
+
+int failures = 0;
+
+void check(bool condition, const char* name, const char* what) {
+    if (!condition) {
+        std::printf("FAIL %s: %s\n", name, what);
+        failures++;
+    }
+}
+
+struct Expected {
+    char delimiter;
+    char quote;
+    bool hasHeader;
+    char lineTerminator;
+};
+
+void checkSniff(const char* name, std::string_view sample, const Expected& expected,
+                bool isWholeFile = true) {
+    const auto dialect = csv_dialect::sniffDialect(sample, isWholeFile);
+    check(dialect.delimiter == expected.delimiter, name, "delimiter");
+    check(dialect.quote == expected.quote, name, "quote");
+    check(dialect.hasHeader == expected.hasHeader, name, "header");
+    check(dialect.lineTerminator == expected.lineTerminator, name, "line terminator");
+}
+
+// Parse one physical line with the parser chosen for the sniffed dialect
+std::vector<std::string> parseLine(std::string_view sample, std::string_view line) {
+    const auto parser = csv_dialect::makeRowParser(csv_dialect::sniffDialect(sample, true));
+    std::vector<std::string> cells;
+    parser->parseRow(line, cells);
+    return cells;
+}
+
+void checkCells(const char* name, const std::vector<std::string>& actual,
+                const std::vector<std::string>& expected) {
+    check(actual == expected, name, "cells");
+    if (actual != expected) {
+        std::printf("  got:");
+        for (const auto& cell : actual) {
+            std::printf(" [%s]", cell.c_str());
+        }
+        std::printf("\n");
+    }
+}
+
+void apostrophes() {
+    // Apostrophes next to a delimiter must not switch the quote character
+    const std::string_view possessive = "id,owner,city\n1,the Smiths',Rome\n2,O'Neil,Oslo\n";
+    checkSniff("possessive", possessive, {',', '"', true, '\n'});
+    checkCells("possessive row", parseLine(possessive, "1,the Smiths',Rome"),
+               {"1", "the Smiths'", "Rome"});
+    checkCells("possessive row 2", parseLine(possessive, "2,O'Neil,Oslo"),
+               {"2", "O'Neil", "Oslo"});
+
+    const std::string_view leading = "id,note\n1,'tis the season\n2,rock 'n' roll\n";
+    checkSniff("leading apostrophe", leading, {',', '"', true, '\n'});
+
+    // Double-quoted fields containing apostrophes stay double-quoted
+    const std::string_view mixed = "id,text\n1,\"it's, fine\"\n2,\"don't\"\n3,'x'\n";
+    checkSniff("mixed quotes", mixed, {',', '"', true, '\n'});
+    checkCells("mixed row", parseLine(mixed, "1,\"it's, fine\""), {"1", "it's, fine"});
+
+    // Genuinely single-quoted files, including escaped quotes
+    const std::string_view single = "id,name\n1,'it''s, ok'\n2,'b'\n3,'c'\n";
+    checkSniff("single quotes", single, {',', '\'', true, '\n'});
+    checkCells("single row", parseLine(single, "1,'it''s, ok'"), {"1", "it's, ok"});
+}
+
+void headers() {
+    checkSniff("text header", "name,city\nann,rome\nbob,oslo\n", {',', '"', true, '\n'});
+    checkSniff("numeric column names", "id,2019,2020\n1,10,20\n2,11,21\n",
+               {',', '"', true, '\n'});
+    checkSniff("all numeric", "1,2,3\n4,5,6\n7,8,9\n", {',', '"', false, '\n'});
+    checkSniff("headerless pipe", "1|alpha|3.5\n2|beta|4.5\n3|gamma|5.5\n",
+               {'|', '"', false, '\n'});
+    checkSniff("single line", "a,b,c\n", {',', '"', true, '\n'});
+}
+
+void delimitersAndLines() {
+    checkSniff("semicolon decimal comma", "id;price\r\n1;1,5\r\n2;2,0\r\n",
+               {';', '"', true, '\n'});
+    checkSniff("tab", "id\tname\n1\tfoo, bar\n2\tbaz\n", {'\t', '"', true, '\n'});
+    checkSniff("cr only", "id,name\r1,a\r2,b\r", {',', '"', true, '\r'});
+    checkSniff("cr only headerless", "1;2\r3;4\r5;6", {';', '"', false, '\r'});
+
+    // A cut sample's partial last line must not skew the counts
+    checkSniff("cut sample", "a;b;c\n1;2;3\n4;5;6\n7;8", {';', '"', true, '\n'}, false);
+}
+
+} // namespace
+
+int main() {
+    apostrophes();
+    headers();
+    delimitersAndLines();
+
+    if (failures == 0) {
+        std::printf("All dialect checks passed\n");
+    }
+    return failures == 0 ? 0 : 1;
+}
@@ -0,0 +1,281 @@
+#include "csv_dialect.h"
+#include "csv_row.h"
+#include <algorithm>
+#include <array>
+#include <cstdlib>
+#include <map>
+
+namespace csv_dialect {
+
+namespace {
+
+constexpr size_t MAX_SAMPLE_LINES = 50;
+constexpr std::array<char, 4> CANDIDATE_DELIMITERS{',', ';', '\t', '|'};
+// Single-quoted fields needed before ' is preferred over the RFC 4180 double quote
+constexpr size_t MIN_SINGLE_QUOTED_FIELDS = 2;
+
+bool isCandidateDelimiter(char c) {
+    return std::find(CANDIDATE_DELIMITERS.begin(), CANDIDATE_DELIMITERS.end(), c) !=
+           CANDIDATE_DELIMITERS.end();
+}
+
+std::vector<std::string_view> sampleLines(std::string_view sample, char terminator,
+                                          bool isWholeFile) {
+    std::vector<std::string_view> lines;
+    size_t start = 0;
+    while (start < sample.size() && lines.size() < MAX_SAMPLE_LINES) {
+        size_t end = sample.find(terminator, start);
+        if (end == std::string_view::npos) {
+            // Keep a cut-off last line only if it's all we have
+            if (isWholeFile || lines.empty()) {
+                end = sample.size();
+            } else {
+                break;
+            }
+        }
+
+        auto line = sample.substr(start, end - start);
+        if (!line.empty() && line.back() == '\r') {
+            line.remove_suffix(1);
+        }
+        if (!line.empty()) {
+            lines.push_back(line);
+        }
+        start = end + 1;
+    }
+    return lines;
+}
+
+// Fields wrapped in a pair of `quote`: it opens at the start of a field and the
+// matching close (doubled quotes skipped) ends one. Stray quotes, such as
+// apostrophes inside text (O'Neil, the Smiths'), are not counted.
+size_t countQuotedFields(const std::vector<std::string_view>& lines, char quote) {
+    size_t count = 0;
+    for (const auto line : lines) {
+        for (size_t i = 0; i < line.size(); ++i) {
+            const bool opens = line[i] == quote && (i == 0 || isCandidateDelimiter(line[i - 1]));
+            if (!opens) {
+                continue;
+            }
+
+            size_t close = i + 1;
+            while (close < line.size()) {
+                if (line[close] == quote && close + 1 < line.size() && line[close + 1] == quote) {
+                    close += 2; // escaped quote
+                } else if (line[close] == quote) {
+                    break;
+                } else {
+                    close++;
+                }
+            }
+
+            if (close < line.size() &&
+                (close + 1 == line.size() || isCandidateDelimiter(line[close + 1]))) {
+                count++;
+                i = close;
+            }
+        }
+    }
+    return count;
+}
+
+// Double quote unless single-quoted fields clearly dominate
+char sniffQuote(const std::vector<std::string_view>& lines) {
+    const size_t doubleQuoted = countQuotedFields(lines, '"');
+    const size_t singleQuoted = countQuotedFields(lines, '\'');
+
+    if (singleQuoted >= MIN_SINGLE_QUOTED_FIELDS && singleQuoted > 2 * doubleQuoted) {
+        return '\'';
+    }
+    return '"';
+}
+
+size_t countOutsideQuotes(std::string_view line, char delimiter, char quote) {
+    size_t count = 0;
+    bool quoted = false;
+    for (const char c : line) {
+        if (c == quote) {
+            quoted = !quoted;
+        } else if (c == delimiter && !quoted) {
+            count++;
+        }
+    }
+    return count;
+}
+
+// The delimiter whose per-line count is most consistent across the sample
+char sniffDelimiter(const std::vector<std::string_view>& lines, char quote) {
+    char best = ',';
+    size_t bestAgreement = 0;
+    size_t bestCount = 0;
+
+    for (const char delimiter : CANDIDATE_DELIMITERS) {
+        std::map<size_t, size_t> frequencies;
+        for (const auto line : lines) {
+            frequencies[countOutsideQuotes(line, delimiter, quote)]++;
+        }
+
+        // Most common non-zero count per line, and how many lines agree on it
+        size_t count = 0;
+        size_t agreement = 0;
+        for (const auto& [perLine, lineCount] : frequencies) {
+            if (perLine > 0 && lineCount >= agreement) {
+                count = perLine;
+                agreement = lineCount;
+            }
+        }
+
+        if (agreement > bestAgreement || (agreement == bestAgreement && count > bestCount)) {
+            best = delimiter;
+            bestAgreement = agreement;
+            bestCount = count;
+        }
+    }
+
+    return best;
+}
+
+std::vector<std::string> splitLine(std::string_view line, char delimiter, char quote) {
+    std::vector<std::string> fields;
+    size_t start = 0;
+    bool quoted = false;
+
+    auto addField = [&](std::string_view raw) {
+        // Runtime-dialect decode, only used on the sniffing sample
+        while (!raw.empty() && (raw.front() == ' ' || raw.front() == '\t')) {
+            raw.remove_prefix(1);
+        }
+        while (!raw.empty() && (raw.back() == ' ' || raw.back() == '\t')) {
+            raw.remove_suffix(1);
+        }
+        if (raw.size() >= 2 && raw.front() == quote && raw.back() == quote) {
+            raw = raw.substr(1, raw.size() - 2);
+        }
+        fields.emplace_back(raw);
+    };
+
+    for (size_t i = 0; i < line.size(); ++i) {
+        if (line[i] == quote) {
+            quoted = !quoted;
+        } else if (line[i] == delimiter && !quoted) {
+            addField(line.substr(start, i - start));
+            start = i + 1;
+        }
+    }
+    addField(line.substr(start));
+    return fields;
+}
+
+bool isNumeric(const std::string& value) {
+    if (value.empty()) {
+        return false;
+    }
+    char* end = nullptr;
+    std::strtod(value.c_str(), &end);
+    return end == value.c_str() + value.size();
+}
+
+/**
+ * A header is assumed unless the first row looks like data. Only columns where
+ * every other sampled value is numeric decide: a non-numeric first cell there
+ * is a column name, so the file has a header; if all such first cells are
+ * numeric too, the first row is data.
+ */
+bool sniffHeader(const std::vector<std::string_view>& lines, char delimiter, char quote) {
+    if (lines.size() < 2) {
+        return true;
+    }
+
+    const auto first = splitLine(lines[0], delimiter, quote);
+    std::vector<bool> allNumeric(first.size(), true);
+
+    for (size_t i = 1; i < lines.size(); ++i) {
+        const auto fields = splitLine(lines[i], delimiter, quote);
+        for (size_t column = 0; column < first.size(); ++column) {
+            if (column >= fields.size() || !isNumeric(fields[column])) {
+                allNumeric[column] = false;
+            }
+        }
+    }
+
+    bool anyNumericColumn = false;
+    for (size_t column = 0; column < first.size(); ++column) {
+        if (!allNumeric[column]) {
+            continue;
+        }
+        if (!isNumeric(first[column])) {
+            return true;
+        }
+        anyNumericColumn = true;
+    }
+    // Without numeric columns there is nothing to tell a header from data by
+    return !anyNumericColumn;
+}
+
+template <char delimiter, char quote>
+class DialectRowParser final : public RowParser {
+public:
+    void parseRow(std::string_view row, std::vector<std::string>& cells) const override {
+        std::string scratch;
+        csv_row::forEachField<delimiter, quote>(row, SIZE_MAX, [&](size_t, std::string_view field) {
+            cells.emplace_back(csv_row::decodeField<quote>(field, scratch));
+        });
+    }
+
+    void parseProjectedRow(std::string_view row, const std::vector<int32_t>& slots,
+                           std::vector<std::string>& cells) const override {
+        std::string scratch;
+        csv_row::forEachField<delimiter, quote>(row, slots.size() - 1,
+                                                [&](size_t fieldIndex, std::string_view field) {
+            const int32_t slot = slots[fieldIndex];
+            if (slot >= 0) {
+                cells[slot] = csv_row::decodeField<quote>(field, scratch);
+            }
+        });
+    }
+
+    std::string_view readField(std::string_view row, size_t column,
+                               std::string& scratch) const override {
+        std::string_view field;
+        if (!csv_row::findField<delimiter, quote>(row, column, field)) {
+            return {};
+        }
+        return csv_row::decodeField<quote>(field, scratch);
+    }
+};
+
+} // namespace
+
+Dialect sniffDialect(std::string_view sample, bool isWholeFile) {
+    Dialect dialect;
+
+    if (sample.find('\n') == std::string_view::npos && sample.find('\r') != std::string_view::npos) {
+        dialect.lineTerminator = '\r';
+    }
+
+    const auto lines = sampleLines(sample, dialect.lineTerminator, isWholeFile);
+    if (lines.empty()) {
+        return dialect;
+    }
+
+    dialect.quote = sniffQuote(lines);
+    dialect.delimiter = sniffDelimiter(lines, dialect.quote);
+    dialect.hasHeader = sniffHeader(lines, dialect.delimiter, dialect.quote);
+    return dialect;
+}
+
+std::string describe(const Dialect& dialect) {
+    std::string delimiter = dialect.delimiter == '\t' ? "\\t" : std::string(1, dialect.delimiter);
+    return "delimiter '" + delimiter + "', quote " + std::string(1, dialect.quote) +
+           (dialect.hasHeader ? ", header" : ", no header") +
+           (dialect.lineTerminator == '\r' ? ", CR lines" : ", LF lines");
+}
+
+std::unique_ptr<RowParser> makeRowParser(const Dialect& dialect) {
+    return dispatchDialect(dialect, [](auto tag) -> std::unique_ptr<RowParser> {
+        using Tag = decltype(tag);
+        return std::make_unique<DialectRowParser<Tag::delimiter, Tag::quote>>();
+    });
+}
+
+} // namespace csv_dialect
@@ -0,0 +1,97 @@
+#ifndef CSV_DIALECT_H
+#define CSV_DIALECT_H
+
+#include <cstddef> // csv2/parameters.hpp uses size_t without including it
+#include "csv2/parameters.hpp"
+#include <cstdint>
+#include <memory>
+#include <string>
+#include <string_view>
+#include <vector>
+
+namespace csv_dialect {
+
+/**
+ * Shape of a delimited file, sniffed from the start of the mapping at load time.
+ */
+struct Dialect {
+    char delimiter = ',';
+    char quote = '"';
+    bool hasHeader = true;
+    char lineTerminator = '\n'; // '\n' also covers "\r\n"; '\r' for old Mac files
+};
+
+/**
+ * Guess the dialect from a sample of the file.
+ * Delimiters are limited to those with a specialized parser: , ; \t |
+ *
+ * @param isWholeFile false if the sample was cut, so its last line may be partial
+ */
+Dialect sniffDialect(std::string_view sample, bool isWholeFile);
+
+std::string describe(const Dialect& dialect);
+
+/**
+ * Compile-time delimiter/quote pair handed to dispatchDialect() callbacks.
+ */
+template <char delimiterChar, char quoteChar>
+struct DialectTag {
+    static constexpr char delimiter = delimiterChar;
+    static constexpr char quote = quoteChar;
+    using delimiter_type = csv2::delimiter<delimiterChar>;
+    using quote_type = csv2::quote_character<quoteChar>;
+};
+
+template <char delimiter, class Fn>
+decltype(auto) dispatchQuote(char quote, Fn&& fn) {
+    if (quote == '\'') {
+        return fn(DialectTag<delimiter, '\''>{});
+    }
+    return fn(DialectTag<delimiter, '"'>{});
+}
+
+/**
+ * Call fn with the DialectTag matching the runtime dialect. The switch runs
+ * once per call site (load, export), never inside per-byte loops.
+ */
+template <class Fn>
+decltype(auto) dispatchDialect(const Dialect& dialect, Fn&& fn) {
+    switch (dialect.delimiter) {
+        case ';':
+            return dispatchQuote<';'>(dialect.quote, fn);
+        case '\t':
+            return dispatchQuote<'\t'>(dialect.quote, fn);
+        case '|':
+            return dispatchQuote<'|'>(dialect.quote, fn);
+        default:
+            return dispatchQuote<','>(dialect.quote, fn);
+    }
+}
+
+/**
+ * Row parsing for one dialect. Implementations are instantiated per
+ * delimiter/quote pair, so the byte loops inside compare against constants;
+ * the virtual call is paid once per row, not per byte.
+ */
+class RowParser {
+public:
+    virtual ~RowParser() = default;
+
+    // All cells of a physical row, decoded
+    virtual void parseRow(std::string_view row, std::vector<std::string>& cells) const = 0;
+
+    // Only cells whose slot (file column -> output position) is >= 0; scanning
+    // stops after the last slot. cells must already be sized to the projection.
+    virtual void parseProjectedRow(std::string_view row, const std::vector<int32_t>& slots,
+                                   std::vector<std::string>& cells) const = 0;
+
+    // Decoded value of one column; empty if the row is shorter
+    virtual std::string_view readField(std::string_view row, size_t column,
+                                       std::string& scratch) const = 0;
+};
+
+std::unique_ptr<RowParser> makeRowParser(const Dialect& dialect);
+
+} // namespace csv_dialect
+
+#endif // CSV_DIALECT_H
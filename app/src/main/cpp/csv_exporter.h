@@ -0,0 +1,169 @@
+#ifndef CSV_EXPORTER_H
+#define CSV_EXPORTER_H
+
+#include "csv2/writer.hpp"
+#include <cstring>
+#include <fstream>
+#include <memory>
+#include <string>
+#include <string_view>
+#include <vector>
+
+namespace csv_export {
+
+/**
+ * Streams raw rows from the memory-mapped source into a new delimited file.
+ *
+ * Rows that are already valid in the output dialect are copied byte-for-byte
+ * (or have their delimiters swapped in place when converting CSV <-> TSV).
+ * Only rows containing quotes or the output delimiter are split into fields
+ * and re-quoted through csv2::Writer, as are projected rows (writeFields). Output always quotes with '"'.
+ * Memory use is bounded by the write buffer and the longest row, never by
+ * the output size.
+ */
+template <class input_delimiter, class quote_character, class output_delimiter>
+class CSVExporter {
+public:
+    static constexpr size_t WRITE_BUFFER_SIZE = 1 << 20; // 1 MiB
+    static constexpr char OUTPUT_QUOTE = '"';
+
+    explicit CSVExporter(const std::string& outputPath)
+            : buffer(new char[WRITE_BUFFER_SIZE]) {
+        // Buffer must be installed before the file is opened
+        stream.rdbuf()->pubsetbuf(buffer.get(), WRITE_BUFFER_SIZE);
+        stream.open(outputPath, std::ios::out | std::ios::binary | std::ios::trunc);
+        writer = std::make_unique<csv2::Writer<output_delimiter>>(stream);
+    }
+
+    bool isOpen() const {
+        return stream.is_open();
+    }
+
+    /**
+     * Write one physical row (without its '\n'). A trailing '\r' is dropped,
+     * output always uses '\n' line endings like csv2::Writer.
+     */
+    void writeRow(std::string_view row) {
+        if (!row.empty() && row.back() == '\r') {
+            row.remove_suffix(1);
+        }
+
+        if constexpr (input_delimiter::value == output_delimiter::value &&
+                      quote_character::value == OUTPUT_QUOTE) {
+            // Same dialect: source quoting is already valid
+            stream.write(row.data(), static_cast<std::streamsize>(row.size()));
+            stream.put('\n');
+        } else if (!containsAny(row)) {
+            writeTranslated(row);
+        } else {
+            writeRequoted(row);
+        }
+    }
+
+    /**
+     * Write already decoded cells (e.g. a column projection of a row),
+     * quoting them for the output dialect. Cells are modified in place.
+     */
+    void writeFields(std::vector<std::string>& cells) {
+        for (auto& field : cells) {
+            quoteField(field);
+        }
+        writer->write_row(cells);
+    }
+
+    /**
+     * Flush and close the output. Returns false if any write failed.
+     */
+    bool finish() {
+        writer.reset(); // csv2::Writer closes the stream on destruction
+        return !stream.fail();
+    }
+
+private:
+    // Declaration order matters: writer closes the stream, which flushes into buffer
+    std::unique_ptr<char[]> buffer;
+    std::ofstream stream;
+    std::unique_ptr<csv2::Writer<output_delimiter>> writer;
+
+    // Scratch storage reused across re-quoted rows
+    std::vector<std::string> fields;
+
+    static bool containsAny(std::string_view row) {
+        return std::memchr(row.data(), quote_character::value, row.size()) != nullptr ||
+               std::memchr(row.data(), OUTPUT_QUOTE, row.size()) != nullptr ||
+               std::memchr(row.data(), output_delimiter::value, row.size()) != nullptr;
+    }
+
+    // No quoting involved: copy the spans between delimiters, swapping the delimiter
+    void writeTranslated(std::string_view row) {
+        const char* p = row.data();
+        const char* const end = p + row.size();
+        while (const char* next = static_cast<const char*>(
+                std::memchr(p, input_delimiter::value, end - p))) {
+            stream.write(p, next - p);
+            stream.put(output_delimiter::value);
+            p = next + 1;
+        }
+        stream.write(p, end - p);
+        stream.put('\n');
+    }
+
+    void writeRequoted(std::string_view row) {
+        splitFields(row);
+        writeFields(fields);
+    }
+
+    // Decode a physical row into unescaped field values
+    void splitFields(std::string_view row) {
+        constexpr char quote = quote_character::value;
+
+        fields.clear();
+        fields.emplace_back();
+        bool quoted = false;
+
+        for (size_t i = 0; i < row.size(); ++i) {
+            const char c = row[i];
+            if (quoted) {
+                if (c != quote) {
+                    fields.back().push_back(c);
+                } else if (i + 1 < row.size() && row[i + 1] == quote) {
+                    fields.back().push_back(quote);
+                    ++i;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == input_delimiter::value) {
+                fields.emplace_back();
+            } else if (c == quote) {
+                quoted = true;
+            } else {
+                fields.back().push_back(c);
+            }
+        }
+    }
+
+    static void quoteField(std::string& field) {
+        constexpr char quote = OUTPUT_QUOTE;
+
+        if (field.find_first_of(std::string{output_delimiter::value, quote, '\n', '\r'}) ==
+            std::string::npos) {
+            return;
+        }
+
+        std::string quoted;
+        quoted.reserve(field.size() + 2);
+        quoted.push_back(quote);
+        for (char c : field) {
+            if (c == quote) {
+                quoted.push_back(quote);
+            }
+            quoted.push_back(c);
+        }
+        quoted.push_back(quote);
+        field.swap(quoted);
+    }
+};
+
+} // namespace csv_export
+
+#endif // CSV_EXPORTER_H
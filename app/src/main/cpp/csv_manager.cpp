@@ -1,15 +1,48 @@
 #include "csv_manager.h"
+#include "csv_exporter.h"
+#include "perf_metrics.h"
 #include <android/log.h>
+#include <algorithm>
+#include <cstdio>
+#include <cstdint>
+#include <cstring>
+#include <sys/stat.h>
 
 #define LOG_TAG "CSVManager"
 #define LOGD(...) __android_log_print(ANDROID_LOG_DEBUG, LOG_TAG, __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
 
+namespace {
+
+constexpr size_t DIALECT_SAMPLE_SIZE = 64 * 1024; // bytes sniffed from the start of the file
+
+// File column -> position in columns (-1 if not listed), sized to the last listed column.
+// Fails on columns out of range or listed twice.
+bool buildColumnSlots(const std::vector<size_t>& columns, size_t columnCount,
+                      std::vector<int32_t>& slots) {
+    size_t lastColumn = 0;
+    for (size_t column : columns) {
+        if (column >= columnCount) {
+            LOGE("Invalid projected column: %zu", column);
+            return false;
+        }
+        lastColumn = std::max(lastColumn, column);
+    }
+
+    slots.assign(lastColumn + 1, -1);
+    for (size_t i = 0; i < columns.size(); ++i) {
+        if (slots[columns[i]] >= 0) {
+            LOGE("Column %zu projected twice", columns[i]);
+            return false;
+        }
+        slots[columns[i]] = static_cast<int32_t>(i);
+    }
+    return true;
+}
+
+} // namespace
+
 CSVManager::CSVManager() : fileLoaded(false), totalRows(0) {
-    reader = std::make_unique<csv2::Reader<csv2::delimiter<','>,
-            csv2::quote_character<'"'>,
-            csv2::first_row_is_header<true>,
-            csv2::trim_policy::trim_whitespace>>();
 }
 
 CSVManager::~CSVManager() {
@@ -24,50 +57,124 @@ CSVManager& CSVManager::getInstance() {
 bool CSVManager::loadFile(const std::string& filePath) {
     LOGD("Loading CSV file: %s", filePath.c_str());
 
-    clearData();
+    // Cancel background readers of the old mapping, then wait for them to let go
+    loadGeneration.fetch_add(1);
+    std::unique_lock<std::shared_mutex> lock(mappingMutex);
+    clearDataLocked();
+
+    const uint64_t loadStart = perf::nowNanos();
+    ATrace_beginSection("CSVManager::loadFile");
 
-    if (!reader->mmap(filePath)) {
+    std::error_code mapError;
+    mappedFile.map(filePath, mapError);
+    if (mapError || mappedFile.size() == 0) {
         LOGE("Failed to memory-map CSV file: %s", filePath.c_str());
+        mappedFile.unmap();
+        ATrace_endSection();
         return false;
     }
 
     try {
-        // Extract headers
+        // Sniff the dialect and pick the matching specialized parser
+        const size_t sampleSize = std::min(mappedFile.size(), DIALECT_SAMPLE_SIZE);
+        dialect = csv_dialect::sniffDialect(std::string_view(mappedFile.data(), sampleSize),
+                                            sampleSize == mappedFile.size());
+        parser = csv_dialect::makeRowParser(dialect);
+        LOGD("Detected dialect: %s", csv_dialect::describe(dialect).c_str());
+
+        // Count total rows, recording where each one starts
+        buildRowOffsets();
+        loadedFilePath = filePath;
+        fileLoaded = true;
+
+        // Extract headers, or name the columns after the first row's width
         headers.clear();
-        const auto headerRow = reader->header();
-        for (const auto& cell : headerRow) {
-            std::string value;
-            cell.read_value(value);
-            headers.push_back(value);
+        if (dialect.hasHeader) {
+            parser->parseRow(getHeaderView(), headers);
+        } else if (totalRows > 0) {
+            std::vector<std::string> firstRow;
+            parser->parseRow(getRowView(0), firstRow);
+            for (size_t i = 0; i < firstRow.size(); ++i) {
+                headers.push_back("Column " + std::to_string(i + 1));
+            }
         }
 
-        // Count total rows
-        totalRows = reader->rows();
-        fileLoaded = true;
+        const uint64_t loadNanos = perf::nowNanos() - loadStart;
+        perf::Metrics::getInstance().recordLoad(loadNanos, mappedFile.size());
+        ATrace_endSection();
 
-        LOGD("CSV loaded successfully: %zu rows, %zu columns", totalRows, headers.size());
+        LOGD("CSV loaded successfully: %zu rows, %zu columns in %.1f ms (%.1f MB/s)",
+             totalRows, headers.size(), loadNanos / 1e6,
+             loadNanos > 0 ? mappedFile.size() * 1e3 / loadNanos : 0.0);
         return true;
 
     } catch (const std::exception& e) {
         LOGE("Exception while loading CSV: %s", e.what());
-        clearData();
+        clearDataLocked();
+        ATrace_endSection();
         return false;
     }
 }
 
 void CSVManager::clearData() {
+    loadGeneration.fetch_add(1);
+    std::unique_lock<std::shared_mutex> lock(mappingMutex);
+    clearDataLocked();
+}
+
+void CSVManager::clearDataLocked() {
+    // Caller holds mappingMutex exclusively
     fileLoaded = false;
     headers.clear();
     totalRows = 0;
-    // Note: reader is reused, not recreated
+    rowOffsets.clear();
+    rowOffsets.shrink_to_fit();
+    mappedFile.unmap();
+    loadedFilePath.clear();
+    {
+        std::lock_guard<std::mutex> lock(projectionMutex);
+        projection.clear();
+        projectionSlots.clear();
+    }
+    {
+        std::lock_guard<std::mutex> lock(keyIndexMutex);
+        keyIndex.reset();
+        keyIndexPersisted = false;
+    }
+    parser.reset();
+    dialect = csv_dialect::Dialect();
+}
+
+void CSVManager::buildRowOffsets() {
+    rowOffsets.clear();
+
+    // Mirrors csv2::Reader::rows(): every terminator starts a new row, and
+    // without a header the first line is a data row too
+    if (!dialect.hasHeader) {
+        rowOffsets.push_back(0);
+    }
+
+    const char terminator = dialect.lineTerminator;
+    const char* begin = mappedFile.data();
+    const char* end = begin + mappedFile.size();
+    for (const char* p = begin;
+         (p = static_cast<const char*>(memchr(p, terminator, end - p)));
+         ++p) {
+        rowOffsets.push_back(static_cast<size_t>(p - begin) + 1);
+    }
+
+    totalRows = rowOffsets.size();
 }
 
-const std::vector<std::string>& CSVManager::getHeaders() const {
+std::vector<std::string> CSVManager::getHeaders() const {
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
     return headers;
 }
 
 std::vector<std::string> CSVManager::getRow(size_t rowIndex) const {
+    perf::ScopedTimer timer(perf::Metric::GetRow, "CSVManager::getRow");
     std::vector<std::string> rowData;
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
 
     if (!fileLoaded || rowIndex >= totalRows) {
         LOGE("Invalid row access: rowIndex=%zu, totalRows=%zu, fileLoaded=%d",
@@ -75,49 +182,345 @@ std::vector<std::string> CSVManager::getRow(size_t rowIndex) const {
         return rowData;
     }
 
-    try {
-        size_t currentIndex = 0;
-        for (const auto& row : *reader) {
-            if (currentIndex == rowIndex) {
-                for (const auto& cell : row) {
-                    std::string value;
-                    cell.read_value(value);
-                    rowData.push_back(value);
-                }
-                break;
-            }
-            currentIndex++;
-        }
+    const auto row = getRowView(rowIndex);
+    if (row.empty()) {
+        return rowData;
+    }
 
-    } catch (const std::exception& e) {
-        LOGE("Exception while reading row %zu: %s", rowIndex, e.what());
-        rowData.clear();
+    std::lock_guard<std::mutex> projectionLock(projectionMutex);
+    if (projection.empty()) {
+        parser->parseRow(row, rowData);
+        return rowData;
     }
 
+    // Only decode projected cells; the scan stops after the last one needed
+    rowData.resize(projection.size());
+    parser->parseProjectedRow(row, projectionSlots, rowData);
     return rowData;
 }
 
+bool CSVManager::setColumnProjection(const std::vector<size_t>& columns) {
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
+    std::lock_guard<std::mutex> projectionLock(projectionMutex);
+
+    if (columns.empty()) {
+        projection.clear();
+        projectionSlots.clear();
+        return true;
+    }
+
+    std::vector<int32_t> slots;
+    if (!buildColumnSlots(columns, headers.size(), slots)) {
+        return false;
+    }
+
+    projection = columns;
+    projectionSlots = std::move(slots);
+    LOGD("Column projection set: %zu of %zu columns", projection.size(), headers.size());
+    return true;
+}
+
+std::vector<size_t> CSVManager::getColumnProjection() const {
+    std::lock_guard<std::mutex> lock(projectionMutex);
+    return projection;
+}
+
 size_t CSVManager::getRowCount() const {
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
     return fileLoaded ? totalRows : 0;
 }
 
 size_t CSVManager::getColumnCount() const {
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
     return fileLoaded ? headers.size() : 0;
 }
 
 bool CSVManager::isFileLoaded() const {
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
     return fileLoaded;
 }
 
+csv_dialect::Dialect CSVManager::getDialect() const {
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
+    return dialect;
+}
+
 std::string CSVManager::getCellValue(size_t rowIndex, size_t columnIndex) const {
+    perf::ScopedTimer timer(perf::Metric::GetCellValue, "CSVManager::getCellValue");
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
+
     if (!fileLoaded || rowIndex >= totalRows || columnIndex >= headers.size()) {
         return "";
     }
 
-    auto rowData = getRow(rowIndex);
-    if (columnIndex < rowData.size()) {
-        return rowData[columnIndex];
+    // Absolute file column, independent of the projection
+    std::string scratch;
+    return std::string(readCell(rowIndex, columnIndex, scratch));
+}
+
+std::string_view CSVManager::getHeaderView() const {
+    if (!fileLoaded || !dialect.hasHeader) {
+        return {};
+    }
+
+    const size_t end = totalRows > 0 ? rowOffsets[0] - 1 : mappedFile.size();
+    return std::string_view(mappedFile.data(), end);
+}
+
+std::string_view CSVManager::getRowView(size_t rowIndex) const {
+    if (!fileLoaded || rowIndex >= totalRows) {
+        return {};
+    }
+
+    const size_t start = rowOffsets[rowIndex];
+    const size_t end = rowIndex + 1 < totalRows ? rowOffsets[rowIndex + 1] - 1 : mappedFile.size();
+    return std::string_view(mappedFile.data() + start, end - start);
+}
+
+size_t CSVManager::dataRowCount() const {
+    if (totalRows > 0 && getRowView(totalRows - 1).empty()) {
+        return totalRows - 1;
+    }
+    return totalRows;
+}
+
+std::string_view CSVManager::readCell(size_t rowIndex, size_t columnIndex, std::string& scratch) const {
+    return parser->readField(getRowView(rowIndex), columnIndex, scratch);
+}
+
+std::string CSVManager::keyIndexPath(size_t columnIndex) const {
+    // Persisted index lives next to the file
+    return loadedFilePath + ".keyidx" + std::to_string(columnIndex);
+}
+
+int64_t CSVManager::fileModifiedTime() const {
+    struct stat fileStat{};
+    if (stat(loadedFilePath.c_str(), &fileStat) != 0) {
+        return -1;
+    }
+    return static_cast<int64_t>(fileStat.st_mtim.tv_sec) * 1000000000LL + fileStat.st_mtim.tv_nsec;
+}
+
+bool CSVManager::ensureKeyIndex(size_t columnIndex, uint64_t generation) {
+    // Caller holds mappingMutex (shared) and keyIndexMutex
+    if (keyIndex && keyIndex->getColumn() == columnIndex) {
+        return true;
+    }
+    keyIndex.reset();
+    keyIndexPersisted = false;
+
+    // The phantom row after a trailing newline would make "" match a row that doesn't exist
+    const size_t indexedRows = dataRowCount();
+    if (indexedRows > KeyIndex::MAX_ROWS) {
+        LOGE("Too many rows for key index: %zu", indexedRows);
+        return false;
+    }
+
+    // A persisted index is only reused if the file's size, mtime and dialect still match
+    const int64_t fileMtime = fileModifiedTime();
+    if (fileMtime >= 0) {
+        keyIndex = KeyIndex::load(keyIndexPath(columnIndex), columnIndex, indexedRows,
+                                  mappedFile.size(), fileMtime, dialect);
+        if (keyIndex) {
+            LOGD("Loaded key index for column %zu", columnIndex);
+            keyIndexPersisted = true;
+            return true;
+        }
+    }
+
+    const uint64_t buildStart = perf::nowNanos();
+    ATrace_beginSection("CSVManager::buildKeyIndex");
+
+    keyIndex = std::make_unique<KeyIndex>(columnIndex, indexedRows);
+    const bool built = keyIndex->build(
+            [this, columnIndex](size_t row, std::string& scratch) {
+                return readCell(row, columnIndex, scratch);
+            },
+            [this, generation]() {
+                return loadGeneration.load(std::memory_order_relaxed) != generation;
+            });
+
+    ATrace_endSection();
+    if (!built) {
+        LOGD("Key index build for column %zu cancelled by reload", columnIndex);
+        keyIndex.reset();
+        return false;
+    }
+    LOGD("Built key index for column %zu over %zu rows in %.1f ms",
+         columnIndex, indexedRows, (perf::nowNanos() - buildStart) / 1e6);
+    return true;
+}
+
+bool CSVManager::buildKeyIndex(size_t columnIndex, bool persist) {
+    // Read before locking, so a reload that lands while we wait cancels this call too
+    const uint64_t generation = loadGeneration.load();
+    std::shared_lock<std::shared_mutex> mappingLock(mappingMutex);
+    if (!fileLoaded || columnIndex >= headers.size()) {
+        return false;
+    }
+
+    std::lock_guard<std::mutex> lock(keyIndexMutex);
+    if (!ensureKeyIndex(columnIndex, generation)) {
+        return false;
+    }
+
+    const int64_t fileMtime = fileModifiedTime();
+    if (persist && !keyIndexPersisted && fileMtime >= 0) {
+        const std::string indexPath = keyIndexPath(columnIndex);
+        keyIndexPersisted = keyIndex->save(indexPath, mappedFile.size(), fileMtime, dialect);
+        if (!keyIndexPersisted) {
+            LOGE("Failed to persist key index: %s", indexPath.c_str());
+            std::remove(indexPath.c_str());
+        }
+    }
+    return true;
+}
+
+int64_t CSVManager::findRowByKey(size_t columnIndex, std::string_view key) {
+    const uint64_t generation = loadGeneration.load();
+    std::shared_lock<std::shared_mutex> mappingLock(mappingMutex);
+    if (!fileLoaded || columnIndex >= headers.size()) {
+        return -1;
+    }
+
+    std::lock_guard<std::mutex> lock(keyIndexMutex);
+    if (!ensureKeyIndex(columnIndex, generation)) {
+        return -1;
+    }
+
+    return keyIndex->find(key, [this, columnIndex](size_t row, std::string& scratch) {
+        return readCell(row, columnIndex, scratch);
+    });
+}
+
+namespace {
+
+constexpr size_t EXPORT_PROGRESS_INTERVAL = 4096; // rows between progress callbacks
+
+} // namespace
+
+template <class input_dialect, class output_delimiter>
+bool CSVManager::streamExport(const std::string& outputPath,
+                              const int32_t* rowOrder, size_t rowOrderLength,
+                              const std::vector<size_t>& columns,
+                              const std::vector<int32_t>& columnSlots,
+                              uint64_t generation,
+                              const ExportProgressCallback& onProgress) const {
+    csv_export::CSVExporter<typename input_dialect::delimiter_type,
+            typename input_dialect::quote_type,
+            output_delimiter> exporter(outputPath);
+
+    if (!exporter.isOpen()) {
+        LOGE("Failed to open export file: %s", outputPath.c_str());
+        return false;
+    }
+
+    const size_t total = rowOrder != nullptr ? rowOrderLength : totalRows;
+
+    // Lets the caller cancel before anything is read (e.g. its activity is already gone)
+    if (onProgress && !onProgress(0, total)) {
+        return false;
     }
 
-    return "";
-}
\ No newline at end of file
+    // With a column projection each row is decoded and re-quoted instead of copied
+    const bool projected = !columns.empty();
+    std::vector<std::string> cells;
+
+    if (dialect.hasHeader) {
+        if (projected) {
+            for (size_t column : columns) {
+                cells.push_back(headers[column]);
+            }
+            exporter.writeFields(cells);
+        } else {
+            exporter.writeRow(getHeaderView());
+        }
+    }
+
+    for (size_t i = 0; i < total; ++i) {
+        if (loadGeneration.load(std::memory_order_relaxed) != generation) {
+            LOGD("Export cancelled by reload after %zu rows", i);
+            return false;
+        }
+
+        size_t rowIndex = i;
+        if (rowOrder != nullptr) {
+            if (rowOrder[i] < 0 || static_cast<size_t>(rowOrder[i]) >= totalRows) {
+                LOGE("Invalid row in export order: %d", rowOrder[i]);
+                return false;
+            }
+            rowIndex = static_cast<size_t>(rowOrder[i]);
+        }
+
+        const auto row = getRowView(rowIndex);
+        // A trailing newline yields an empty last row; don't turn it into a blank line
+        const bool trailingEmptyRow = row.empty() && rowIndex + 1 == totalRows;
+        if (!trailingEmptyRow && projected) {
+            cells.assign(columns.size(), std::string());
+            parser->parseProjectedRow(row, columnSlots, cells);
+            exporter.writeFields(cells);
+        } else if (!trailingEmptyRow) {
+            exporter.writeRow(row);
+        }
+
+        if (onProgress && (i + 1) % EXPORT_PROGRESS_INTERVAL == 0 && !onProgress(i + 1, total)) {
+            LOGD("Export cancelled after %zu rows", i + 1);
+            return false;
+        }
+    }
+
+    if (!exporter.finish()) {
+        LOGE("Failed to write export file: %s", outputPath.c_str());
+        return false;
+    }
+
+    if (onProgress) {
+        onProgress(total, total);
+    }
+    return true;
+}
+
+bool CSVManager::exportRows(const std::string& outputPath,
+                            const int32_t* rowOrder, size_t rowOrderLength,
+                            const std::vector<size_t>& columns,
+                            char outputDelimiter,
+                            const ExportProgressCallback& onProgress) const {
+    // The mapping stays valid until we return; a reload cancels us instead of waiting
+    const uint64_t generation = loadGeneration.load();
+    std::shared_lock<std::shared_mutex> lock(mappingMutex);
+
+    if (!fileLoaded) {
+        LOGE("Export requested with no file loaded");
+        return false;
+    }
+
+    LOGD("Exporting %zu rows to %s",
+         rowOrder != nullptr ? rowOrderLength : totalRows, outputPath.c_str());
+
+    if (outputDelimiter != ',' && outputDelimiter != '\t') {
+        LOGE("Unsupported export delimiter: %c", outputDelimiter);
+        return false;
+    }
+
+    std::vector<int32_t> columnSlots;
+    if (!columns.empty() && !buildColumnSlots(columns, headers.size(), columnSlots)) {
+        return false;
+    }
+
+    // Source dialect is dispatched once here; the per-row copy loop stays specialized
+    const bool success = csv_dialect::dispatchDialect(dialect, [&](auto tag) {
+        using input_dialect = decltype(tag);
+        if (outputDelimiter == '\t') {
+            return streamExport<input_dialect, csv2::delimiter<'\t'>>(
+                    outputPath, rowOrder, rowOrderLength, columns, columnSlots, generation, onProgress);
+        }
+        return streamExport<input_dialect, csv2::delimiter<','>>(
+                outputPath, rowOrder, rowOrderLength, columns, columnSlots, generation, onProgress);
+    });
+
+    if (!success) {
+        // Don't leave a truncated file behind
+        std::remove(outputPath.c_str());
+    }
+    return success;
+}
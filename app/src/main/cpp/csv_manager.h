@@ -1,21 +1,80 @@
 #ifndef CSV_MANAGER_H
 #define CSV_MANAGER_H
 
-#include "csv2/reader.hpp"
+#include "csv2/mio.hpp"
+#include "csv_dialect.h"
+#include "key_index.h"
+#include <atomic>
+#include <cstdint>
+#include <functional>
 #include <string>
+#include <string_view>
 #include <vector>
 #include <memory>
+#include <mutex>
+#include <shared_mutex>
 
 class CSVManager {
 private:
-    std::unique_ptr<csv2::Reader<csv2::delimiter<','>,
-    csv2::quote_character<'"'>,
-    csv2::first_row_is_header<true>,
-    csv2::trim_policy::trim_whitespace>> reader;
+    // Guards the mapping and everything derived from it. Readers (including
+    // background index builds and exports) hold it shared for the whole call;
+    // loadFile/clearData hold it exclusively, so nothing reads an unmapped file.
+    mutable std::shared_mutex mappingMutex;
+    // Bumped before the mapping is replaced; long-running readers compare it
+    // against the value they started with and bail out, so a reload never
+    // waits for a full index build or export
+    std::atomic<uint64_t> loadGeneration{0};
+
+    mio::mmap_source mappedFile;
+    csv_dialect::Dialect dialect;
+    // Parser specialized for the sniffed delimiter/quote, chosen at load time
+    std::unique_ptr<csv_dialect::RowParser> parser;
+    std::string loadedFilePath;
     bool fileLoaded;
     std::vector<std::string> headers;
     size_t totalRows;
 
+    // Start offset of every data row in the mapped file, built in one
+    // memchr pass over the dialect's line terminator at load time
+    std::vector<size_t> rowOffsets;
+
+    void clearDataLocked();
+    void buildRowOffsets();
+    // Raw access to the mapped file (header and data rows, line terminator stripped)
+    // Header view is empty when the file was sniffed as headerless; caller holds mappingMutex
+    std::string_view getHeaderView() const;
+    std::string_view getRowView(size_t rowIndex) const;
+    // Rows holding data: the empty row after a trailing line terminator is left out
+    size_t dataRowCount() const;
+    // Decoded value of one cell; views into the mapping unless unescaping was needed
+    std::string_view readCell(size_t rowIndex, size_t columnIndex, std::string& scratch) const;
+
+    // Column projection: ordered file columns returned by getRow (empty = all)
+    mutable std::mutex projectionMutex;
+    std::vector<size_t> projection;
+    // File column -> position in projection, -1 if hidden; sized to the last projected column
+    std::vector<int32_t> projectionSlots;
+
+    // Secondary key index over one column, built on demand
+    std::unique_ptr<KeyIndex> keyIndex;
+    bool keyIndexPersisted = false;
+    std::mutex keyIndexMutex;
+
+    // Builds are abandoned (returning false) once loadGeneration moves past generation
+    bool ensureKeyIndex(size_t columnIndex, uint64_t generation);
+
+    std::string keyIndexPath(size_t columnIndex) const;
+    int64_t fileModifiedTime() const;
+
+    // Caller holds mappingMutex (shared); stops early once loadGeneration moves past generation
+    template <class input_dialect, class output_delimiter>
+    bool streamExport(const std::string& outputPath,
+                      const int32_t* rowOrder, size_t rowOrderLength,
+                      const std::vector<size_t>& columns,
+                      const std::vector<int32_t>& columnSlots,
+                      uint64_t generation,
+                      const std::function<bool(size_t, size_t)>& onProgress) const;
+
 public:
     CSVManager();
     ~CSVManager();
@@ -28,14 +87,38 @@ public:
     void clearData();
 
     // Data access
-    const std::vector<std::string>& getHeaders() const;
+    std::vector<std::string> getHeaders() const;
+    // Cells of a row, restricted to and ordered by the column projection if one is set
     std::vector<std::string> getRow(size_t rowIndex) const;
     size_t getRowCount() const;
     size_t getColumnCount() const;
     bool isFileLoaded() const;
+    csv_dialect::Dialect getDialect() const;
 
     // Utility
     std::string getCellValue(size_t rowIndex, size_t columnIndex) const;
+
+    // Column projection
+    // Hidden columns are skipped without being decoded or marshalled; empty list restores all
+    bool setColumnProjection(const std::vector<size_t>& columns);
+    std::vector<size_t> getColumnProjection() const;
+
+    // Key lookup
+    // Builds (or loads a persisted) index for the column if it isn't the current one
+    bool buildKeyIndex(size_t columnIndex, bool persist);
+    // Returns the first row whose column value equals key, or -1
+    int64_t findRowByKey(size_t columnIndex, std::string_view key);
+
+    // Export
+    // Progress callback receives (rowsWritten, totalRows); returning false cancels.
+    // Loading another file cancels a running export as well.
+    // columns: file columns to write, in output order (empty = all, rows copied as-is)
+    using ExportProgressCallback = std::function<bool(size_t, size_t)>;
+    bool exportRows(const std::string& outputPath,
+                    const int32_t* rowOrder, size_t rowOrderLength,
+                    const std::vector<size_t>& columns,
+                    char outputDelimiter,
+                    const ExportProgressCallback& onProgress) const;
 };
 
 #endif // CSV_MANAGER_H
\ No newline at end of file
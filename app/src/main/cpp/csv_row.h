@@ -0,0 +1,95 @@
+#ifndef CSV_ROW_H
+#define CSV_ROW_H
+
+#include <string>
+#include <string_view>
+
+namespace csv_row {
+
+/**
+ * Walk the fields of a physical row up to and including `lastColumn`,
+ * calling visit(fieldIndex, rawField) for each. Quotes only toggle the
+ * "inside quotes" state, so cells are jumped over without being decoded;
+ * the visitor decides which raw fields are worth decoding.
+ */
+template <char delimiter, char quote, class Visitor>
+void forEachField(std::string_view row, size_t lastColumn, Visitor&& visit) {
+    if (!row.empty() && row.back() == '\r') {
+        row.remove_suffix(1);
+    }
+
+    size_t fieldIndex = 0;
+    size_t start = 0;
+    bool quoted = false;
+
+    for (size_t i = 0; i < row.size(); ++i) {
+        const char c = row[i];
+        if (c == quote) {
+            // A doubled quote toggles twice, which is exactly what we want
+            quoted = !quoted;
+        } else if (c == delimiter && !quoted) {
+            visit(fieldIndex, row.substr(start, i - start));
+            if (fieldIndex == lastColumn) {
+                return;
+            }
+            ++fieldIndex;
+            start = i + 1;
+        }
+    }
+
+    visit(fieldIndex, row.substr(start));
+}
+
+/**
+ * Locate field `column` in a physical row without decoding anything before it.
+ * The returned view still has its quotes and padding.
+ * Returns false if the row has fewer fields.
+ */
+template <char delimiter, char quote>
+bool findField(std::string_view row, size_t column, std::string_view& field) {
+    bool found = false;
+    forEachField<delimiter, quote>(row, column, [&](size_t fieldIndex, std::string_view raw) {
+        if (fieldIndex == column) {
+            field = raw;
+            found = true;
+        }
+    });
+    return found;
+}
+
+/**
+ * Decode a raw field: trim spaces/tabs, strip enclosing quotes and collapse
+ * doubled quotes. Unquoted fields are returned as a view into `field`; only
+ * quoted fields with embedded quotes are copied into `scratch`.
+ */
+template <char quote>
+std::string_view decodeField(std::string_view field, std::string& scratch) {
+    while (!field.empty() && (field.front() == ' ' || field.front() == '\t')) {
+        field.remove_prefix(1);
+    }
+    while (!field.empty() && (field.back() == ' ' || field.back() == '\t')) {
+        field.remove_suffix(1);
+    }
+
+    if (field.size() < 2 || field.front() != quote || field.back() != quote) {
+        return field;
+    }
+
+    field = field.substr(1, field.size() - 2);
+    if (field.find(quote) == std::string_view::npos) {
+        return field;
+    }
+
+    scratch.clear();
+    for (size_t i = 0; i < field.size(); ++i) {
+        scratch.push_back(field[i]);
+        if (field[i] == quote && i + 1 < field.size() && field[i + 1] == quote) {
+            ++i;
+        }
+    }
+    return scratch;
+}
+
+} // namespace csv_row
+
+#endif // CSV_ROW_H
@@ -0,0 +1,113 @@
+#include "key_index.h"
+#include <fstream>
+
+namespace {
+
+constexpr uint32_t INDEX_MAGIC = 0x58494b44; // "DKIX"
+constexpr uint32_t INDEX_VERSION = 2; // 2: dialect recorded, trailing empty row not indexed
+
+struct IndexFileHeader {
+    uint32_t magic;
+    uint32_t version;
+    uint64_t fileSize;
+    int64_t fileMtime;
+    uint64_t column;
+    uint64_t rowCount;
+    uint64_t capacity;
+    // The same bytes split into different keys under another dialect
+    char delimiter;
+    char quote;
+    char lineTerminator;
+    uint8_t hasHeader;
+    uint32_t reserved;
+};
+
+bool matchesDialect(const IndexFileHeader& header, const csv_dialect::Dialect& dialect) {
+    return header.delimiter == dialect.delimiter && header.quote == dialect.quote &&
+           header.lineTerminator == dialect.lineTerminator &&
+           header.hasHeader == (dialect.hasHeader ? 1 : 0);
+}
+
+static_assert(sizeof(std::atomic<uint64_t>) == sizeof(uint64_t),
+              "slots are persisted as raw uint64_t");
+
+size_t capacityFor(size_t rowCount) {
+    // Power of two with load factor <= 0.7
+    size_t capacity = 16;
+    while (capacity * 7 < rowCount * 10) {
+        capacity <<= 1;
+    }
+    return capacity;
+}
+
+} // namespace
+
+KeyIndex::KeyIndex(size_t column, size_t rowCount)
+        : column(column),
+          rowCount(rowCount),
+          capacity(capacityFor(rowCount)),
+          mask(capacity - 1),
+          slots(new std::atomic<uint64_t>[capacity]) {
+    for (size_t i = 0; i < capacity; ++i) {
+        slots[i].store(0, std::memory_order_relaxed);
+    }
+}
+
+uint64_t KeyIndex::hash(std::string_view key) {
+    // FNV-1a followed by a murmur3 finalizer so low bits (slot) and high bits (tag) both mix
+    uint64_t h = 0xcbf29ce484222325ULL;
+    for (const char c : key) {
+        h ^= static_cast<unsigned char>(c);
+        h *= 0x100000001b3ULL;
+    }
+    h ^= h >> 33;
+    h *= 0xff51afd7ed558ccdULL;
+    h ^= h >> 33;
+    h *= 0xc4ceb9fe1a85ec53ULL;
+    h ^= h >> 33;
+    return h;
+}
+
+bool KeyIndex::save(const std::string& path, uint64_t fileSize, int64_t fileMtime,
+                    const csv_dialect::Dialect& dialect) const {
+    std::ofstream out(path, std::ios::binary | std::ios::trunc);
+    if (!out) {
+        return false;
+    }
+
+    const IndexFileHeader header{INDEX_MAGIC, INDEX_VERSION, fileSize, fileMtime,
+                                 column, rowCount, capacity,
+                                 dialect.delimiter, dialect.quote, dialect.lineTerminator,
+                                 static_cast<uint8_t>(dialect.hasHeader ? 1 : 0), 0};
+    out.write(reinterpret_cast<const char*>(&header), sizeof(header));
+    out.write(reinterpret_cast<const char*>(slots.get()),
+              static_cast<std::streamsize>(capacity * sizeof(uint64_t)));
+    out.close();
+    return !out.fail();
+}
+
+std::unique_ptr<KeyIndex> KeyIndex::load(const std::string& path, size_t column, size_t rowCount,
+                                         uint64_t fileSize, int64_t fileMtime,
+                                         const csv_dialect::Dialect& dialect) {
+    std::ifstream in(path, std::ios::binary);
+    if (!in) {
+        return nullptr;
+    }
+
+    IndexFileHeader header{};
+    in.read(reinterpret_cast<char*>(&header), sizeof(header));
+    if (!in || header.magic != INDEX_MAGIC || header.version != INDEX_VERSION ||
+        header.fileSize != fileSize || header.fileMtime != fileMtime ||
+        header.column != column || header.rowCount != rowCount ||
+        header.capacity != capacityFor(rowCount) || !matchesDialect(header, dialect)) {
+        return nullptr;
+    }
+
+    auto index = std::make_unique<KeyIndex>(column, rowCount);
+    in.read(reinterpret_cast<char*>(index->slots.get()),
+            static_cast<std::streamsize>(index->capacity * sizeof(uint64_t)));
+    if (!in) {
+        return nullptr;
+    }
+    return index;
+}
@@ -0,0 +1,141 @@
+#ifndef KEY_INDEX_H
+#define KEY_INDEX_H
+
+#include "csv_dialect.h"
+#include <algorithm>
+#include <atomic>
+#include <cstdint>
+#include <memory>
+#include <string>
+#include <string_view>
+#include <thread>
+#include <vector>
+
+/**
+ * Secondary hash index from the bytes of one column to row numbers.
+ *
+ * Open addressing with linear probing over 8-byte slots:
+ * high 32 bits hold a hash tag, low 32 bits hold row + 1 (0 = empty).
+ * Keys are not stored; candidates are confirmed by re-reading the key
+ * from the mapped row, so the index costs 12-23 bytes per row (load <= 0.7).
+ */
+class KeyIndex {
+public:
+    static constexpr size_t MAX_ROWS = UINT32_MAX - 1;
+    static constexpr size_t MAX_BUILD_THREADS = 8;
+    static constexpr size_t CANCEL_CHECK_INTERVAL = 1024; // rows between isCancelled() polls
+
+    KeyIndex(size_t column, size_t rowCount);
+
+    size_t getColumn() const { return column; }
+
+    /**
+     * Hash every row's key in parallel. keyOf(row, scratch) must be
+     * thread-safe and return the decoded key of a row. Duplicate keys
+     * collapse into one slot holding the lowest row.
+     *
+     * isCancelled() is polled by every worker; once it returns true the
+     * build stops early and returns false, leaving the index incomplete.
+     */
+    template <class KeyOf, class IsCancelled>
+    bool build(KeyOf keyOf, IsCancelled isCancelled) {
+        const size_t threadCount = std::clamp<size_t>(
+                std::thread::hardware_concurrency(), 1, MAX_BUILD_THREADS);
+        const size_t chunk = (rowCount + threadCount - 1) / threadCount;
+        std::atomic<bool> cancelled{false};
+
+        auto insertRange = [this, &keyOf, &isCancelled, &cancelled](size_t begin, size_t end) {
+            std::string keyScratch;
+            std::string slotScratch;
+            for (size_t row = begin; row < end; ++row) {
+                if ((row - begin) % CANCEL_CHECK_INTERVAL == 0 &&
+                    (cancelled.load(std::memory_order_relaxed) || isCancelled())) {
+                    cancelled.store(true, std::memory_order_relaxed);
+                    return;
+                }
+                const std::string_view key = keyOf(row, keyScratch);
+                insert(key, static_cast<uint32_t>(row), keyOf, slotScratch);
+            }
+        };
+
+        std::vector<std::thread> workers;
+        for (size_t begin = chunk; begin < rowCount; begin += chunk) {
+            workers.emplace_back(insertRange, begin, std::min(begin + chunk, rowCount));
+        }
+        insertRange(0, std::min(chunk, rowCount));
+
+        for (auto& worker : workers) {
+            worker.join();
+        }
+        return !cancelled.load(std::memory_order_relaxed);
+    }
+
+    /**
+     * First row whose key equals `key`, or -1.
+     * Expected O(1): only the probe run for the key's slot is visited.
+     */
+    template <class KeyOf>
+    int64_t find(std::string_view key, KeyOf keyOf) const {
+        const uint64_t keyHash = hash(key);
+        const uint64_t tag = keyHash >> 32;
+
+        std::string scratch;
+        for (size_t pos = keyHash & mask;; pos = (pos + 1) & mask) {
+            const uint64_t slot = slots[pos].load(std::memory_order_relaxed);
+            if (slot == 0) {
+                return -1;
+            }
+            if ((slot >> 32) == tag && keyOf(rowOf(slot), scratch) == key) {
+                return static_cast<int64_t>(rowOf(slot));
+            }
+        }
+    }
+
+    // Persistence, validated against the source file's size and mtime and the
+    // dialect its rows were split with
+    bool save(const std::string& path, uint64_t fileSize, int64_t fileMtime,
+              const csv_dialect::Dialect& dialect) const;
+    static std::unique_ptr<KeyIndex> load(const std::string& path, size_t column, size_t rowCount,
+                                          uint64_t fileSize, int64_t fileMtime,
+                                          const csv_dialect::Dialect& dialect);
+
+    static uint64_t hash(std::string_view key);
+
+private:
+    size_t column;
+    size_t rowCount;
+    size_t capacity;
+    size_t mask;
+    std::unique_ptr<std::atomic<uint64_t>[]> slots;
+
+    static uint32_t rowOf(uint64_t slot) {
+        return static_cast<uint32_t>((slot & UINT32_MAX) - 1);
+    }
+
+    template <class KeyOf>
+    void insert(std::string_view key, uint32_t row, KeyOf& keyOf, std::string& scratch) {
+        const uint64_t keyHash = hash(key);
+        const uint64_t tag = keyHash >> 32;
+        const uint64_t entry = (tag << 32) | (static_cast<uint64_t>(row) + 1);
+
+        for (size_t pos = keyHash & mask;; pos = (pos + 1) & mask) {
+            uint64_t current = slots[pos].load(std::memory_order_relaxed);
+            while (true) {
+                const bool sameKey = current != 0 && (current >> 32) == tag &&
+                                     keyOf(rowOf(current), scratch) == key;
+                if (current != 0 && !sameKey) {
+                    break; // another key, keep probing
+                }
+                if (sameKey && rowOf(current) <= row) {
+                    return; // an earlier row already holds this key
+                }
+                if (slots[pos].compare_exchange_weak(current, entry, std::memory_order_relaxed)) {
+                    return;
+                }
+                // Lost a race (or spurious failure), re-examine the slot's new value
+            }
+        }
+    }
+};
+
+#endif // KEY_INDEX_H
@@ -2,11 +2,44 @@
 #include <string>
 #include <android/log.h>
 #include "csv_manager.h"
+#include "perf_metrics.h"
 
 #define LOG_TAG "NativeLib"
 #define LOGD(...) __android_log_print(ANDROID_LOG_DEBUG, LOG_TAG, __VA_ARGS__)
 #define LOGE(...) __android_log_print(ANDROID_LOG_ERROR, LOG_TAG, __VA_ARGS__)
 
+namespace {
+
+// Copy a Java column list; null becomes an empty list (all columns)
+bool toColumnList(JNIEnv* env, jintArray columns, std::vector<size_t>& result) {
+    result.clear();
+    if (columns == nullptr) {
+        return true;
+    }
+
+    const jsize length = env->GetArrayLength(columns);
+    jint* values = env->GetIntArrayElements(columns, nullptr);
+    if (values == nullptr) {
+        LOGE("Failed to access column list");
+        return false;
+    }
+
+    bool valid = true;
+    result.reserve(static_cast<size_t>(length));
+    for (jsize i = 0; i < length; i++) {
+        if (values[i] < 0) {
+            LOGE("Negative column in column list");
+            valid = false;
+            break;
+        }
+        result.push_back(static_cast<size_t>(values[i]));
+    }
+    env->ReleaseIntArrayElements(columns, values, JNI_ABORT);
+    return valid;
+}
+
+} // namespace
+
 extern "C" JNIEXPORT jstring JNICALL
 Java_io_nava_dokumentu_app_MainActivity_stringFromJNI(
         JNIEnv* env,
@@ -45,7 +78,7 @@ Java_io_nava_dokumentu_app_MainActivity_getCSVHeaders(
         JNIEnv* env,
         jobject /* this */) {
 
-    const auto& headers = CSVManager::getInstance().getHeaders();
+    const auto headers = CSVManager::getInstance().getHeaders();
 
     if (headers.empty()) {
         return nullptr;
@@ -183,7 +216,7 @@ Java_io_nava_dokumentu_app_CSVDataBridge_getCSVHeaders(
         JNIEnv* env,
         jclass /* clazz */) {
 
-    const auto& headers = CSVManager::getInstance().getHeaders();
+    const auto headers = CSVManager::getInstance().getHeaders();
 
     if (headers.empty()) {
         return nullptr;
@@ -220,6 +253,8 @@ Java_io_nava_dokumentu_app_CSVDataBridge_getCSVRow(
         jclass /* clazz */,
         jint rowIndex) {
 
+    perf::ScopedTimer timer(perf::Metric::JniGetRow, "JNI getCSVRow");
+
     if (rowIndex < 0) {
         LOGE("Invalid row index: %d", rowIndex);
         return nullptr;
@@ -279,6 +314,8 @@ Java_io_nava_dokumentu_app_CSVDataBridge_getCellValue(
         jint rowIndex,
         jint columnIndex) {
 
+    perf::ScopedTimer timer(perf::Metric::JniGetCellValue, "JNI getCellValue");
+
     if (rowIndex < 0 || columnIndex < 0) {
         return nullptr;
     }
@@ -289,4 +326,178 @@ Java_io_nava_dokumentu_app_CSVDataBridge_getCellValue(
     );
 
     return env->NewStringUTF(value.c_str());
-}
\ No newline at end of file
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_io_nava_dokumentu_app_CSVDataBridge_exportRows(
+        JNIEnv* env,
+        jclass /* clazz */,
+        jstring outputPath,
+        jintArray rowOrder,
+        jintArray columns,
+        jboolean tabSeparated,
+        jobject listener) {
+
+    if (outputPath == nullptr) {
+        LOGE("Output path is null");
+        return JNI_FALSE;
+    }
+
+    const char* pathStr = env->GetStringUTFChars(outputPath, nullptr);
+    if (pathStr == nullptr) {
+        LOGE("Failed to get UTF chars from output path");
+        return JNI_FALSE;
+    }
+
+    std::string path(pathStr);
+    env->ReleaseStringUTFChars(outputPath, pathStr);
+
+    jmethodID onProgress = nullptr;
+    if (listener != nullptr) {
+        jclass listenerClass = env->GetObjectClass(listener);
+        onProgress = env->GetMethodID(listenerClass, "onProgress", "(JJ)Z");
+        env->DeleteLocalRef(listenerClass);
+        if (onProgress == nullptr) {
+            LOGE("Failed to find onProgress on export listener");
+            return JNI_FALSE;
+        }
+    }
+
+    // null columns means every column in file order
+    std::vector<size_t> columnList;
+    if (!toColumnList(env, columns, columnList)) {
+        return JNI_FALSE;
+    }
+
+    // null row order means file order
+    jint* order = nullptr;
+    jsize orderLength = 0;
+    if (rowOrder != nullptr) {
+        orderLength = env->GetArrayLength(rowOrder);
+        order = env->GetIntArrayElements(rowOrder, nullptr);
+        if (order == nullptr) {
+            LOGE("Failed to access export row order");
+            return JNI_FALSE;
+        }
+    }
+
+    auto progress = [env, listener, onProgress](size_t written, size_t total) {
+        if (onProgress == nullptr) {
+            return true;
+        }
+        jboolean keepGoing = env->CallBooleanMethod(listener, onProgress,
+                                                    static_cast<jlong>(written),
+                                                    static_cast<jlong>(total));
+        if (env->ExceptionCheck()) {
+            return false;
+        }
+        return keepGoing == JNI_TRUE;
+    };
+
+    bool success = CSVManager::getInstance().exportRows(
+            path,
+            reinterpret_cast<const int32_t*>(order),
+            static_cast<size_t>(orderLength),
+            columnList,
+            tabSeparated == JNI_TRUE ? '\t' : ',',
+            progress);
+
+    if (order != nullptr) {
+        env->ReleaseIntArrayElements(rowOrder, order, JNI_ABORT);
+    }
+
+    return success ? JNI_TRUE : JNI_FALSE;
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_io_nava_dokumentu_app_CSVDataBridge_nativeSetMetricsEnabled(
+        JNIEnv* env,
+        jclass /* clazz */,
+        jboolean enabled) {
+
+    perf::Metrics::setEnabled(enabled == JNI_TRUE);
+}
+
+extern "C" JNIEXPORT void JNICALL
+Java_io_nava_dokumentu_app_CSVDataBridge_nativeResetMetrics(
+        JNIEnv* env,
+        jclass /* clazz */) {
+
+    perf::Metrics::getInstance().reset();
+}
+
+extern "C" JNIEXPORT jlongArray JNICALL
+Java_io_nava_dokumentu_app_CSVDataBridge_nativeGetMetrics(
+        JNIEnv* env,
+        jclass /* clazz */) {
+
+    const auto snapshot = perf::Metrics::getInstance().snapshot();
+
+    jlongArray result = env->NewLongArray(static_cast<jsize>(snapshot.size()));
+    if (result == nullptr) {
+        LOGE("Failed to create metrics array");
+        return nullptr;
+    }
+
+    env->SetLongArrayRegion(result, 0, static_cast<jsize>(snapshot.size()),
+                            reinterpret_cast<const jlong*>(snapshot.data()));
+    return result;
+}
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_io_nava_dokumentu_app_CSVDataBridge_buildKeyIndex(
+        JNIEnv* env,
+        jclass /* clazz */,
+        jint columnIndex,
+        jboolean persist) {
+
+    if (columnIndex < 0) {
+        LOGE("Invalid column index: %d", columnIndex);
+        return JNI_FALSE;
+    }
+
+    bool success = CSVManager::getInstance().buildKeyIndex(
+            static_cast<size_t>(columnIndex), persist == JNI_TRUE);
+    return success ? JNI_TRUE : JNI_FALSE;
+}
+
+extern "C" JNIEXPORT jint JNICALL
+Java_io_nava_dokumentu_app_CSVDataBridge_findRowByKey(
+        JNIEnv* env,
+        jclass /* clazz */,
+        jint columnIndex,
+        jstring value) {
+
+    if (columnIndex < 0 || value == nullptr) {
+        return -1;
+    }
+
+    const char* valueStr = env->GetStringUTFChars(value, nullptr);
+    if (valueStr == nullptr) {
+        LOGE("Failed to get UTF chars from key value");
+        return -1;
+    }
+
+    std::string key(valueStr);
+    env->ReleaseStringUTFChars(value, valueStr);
+
+    int64_t row = CSVManager::getInstance().findRowByKey(static_cast<size_t>(columnIndex), key);
+    return static_cast<jint>(row);
+}
+
+
+extern "C" JNIEXPORT jboolean JNICALL
+Java_io_nava_dokumentu_app_CSVDataBridge_setColumnProjection(
+        JNIEnv* env,
+        jclass /* clazz */,
+        jintArray columns) {
+
+    // null restores all columns in file order
+    std::vector<size_t> projection;
+    if (!toColumnList(env, columns, projection)) {
+        return JNI_FALSE;
+    }
+
+    bool success = CSVManager::getInstance().setColumnProjection(projection);
+    return success ? JNI_TRUE : JNI_FALSE;
+}
@@ -0,0 +1,92 @@
+#include "perf_metrics.h"
+#include <algorithm>
+
+namespace perf {
+
+namespace {
+
+size_t bucketFor(uint64_t nanos) {
+    // Bit width of the sample: 0 -> 0, 1 -> 1, [2,4) -> 2, [4,8) -> 3, ...
+    const size_t width = nanos == 0 ? 0 : 64 - static_cast<size_t>(__builtin_clzll(nanos));
+    return std::min(width, LatencyHistogram::BUCKET_COUNT - 1);
+}
+
+} // namespace
+
+void LatencyHistogram::record(uint64_t nanos) {
+    buckets[bucketFor(nanos)].fetch_add(1, std::memory_order_relaxed);
+    samples.fetch_add(1, std::memory_order_relaxed);
+    sum.fetch_add(nanos, std::memory_order_relaxed);
+
+    uint64_t currentMax = max.load(std::memory_order_relaxed);
+    while (nanos > currentMax &&
+           !max.compare_exchange_weak(currentMax, nanos, std::memory_order_relaxed)) {
+    }
+}
+
+void LatencyHistogram::reset() {
+    for (auto& bucket : buckets) {
+        bucket.store(0, std::memory_order_relaxed);
+    }
+    samples.store(0, std::memory_order_relaxed);
+    sum.store(0, std::memory_order_relaxed);
+    max.store(0, std::memory_order_relaxed);
+}
+
+uint64_t LatencyHistogram::percentile(double fraction) const {
+    const uint64_t total = count();
+    if (total == 0) {
+        return 0;
+    }
+
+    const auto target = static_cast<uint64_t>(fraction * static_cast<double>(total));
+    uint64_t seen = 0;
+    for (size_t i = 0; i < BUCKET_COUNT; ++i) {
+        seen += buckets[i].load(std::memory_order_relaxed);
+        if (seen > target) {
+            // Upper bound of the bucket, never above the observed max
+            return std::min(uint64_t{1} << i, maxNanos());
+        }
+    }
+    return maxNanos();
+}
+
+Metrics& Metrics::getInstance() {
+    static Metrics instance;
+    return instance;
+}
+
+void Metrics::recordLatency(Metric metric, uint64_t nanos) {
+    histograms[static_cast<size_t>(metric)].record(nanos);
+}
+
+void Metrics::recordLoad(uint64_t nanos, uint64_t bytes) {
+    loadNanos.store(nanos, std::memory_order_relaxed);
+    loadBytes.store(bytes, std::memory_order_relaxed);
+}
+
+void Metrics::reset() {
+    for (auto& histogram : histograms) {
+        histogram.reset();
+    }
+}
+
+std::vector<int64_t> Metrics::snapshot() const {
+    std::vector<int64_t> result;
+    result.reserve(2 + static_cast<size_t>(Metric::Count) * 5);
+
+    result.push_back(static_cast<int64_t>(loadNanos.load(std::memory_order_relaxed)));
+    result.push_back(static_cast<int64_t>(loadBytes.load(std::memory_order_relaxed)));
+
+    for (const auto& histogram : histograms) {
+        result.push_back(static_cast<int64_t>(histogram.count()));
+        result.push_back(static_cast<int64_t>(histogram.totalNanos()));
+        result.push_back(static_cast<int64_t>(histogram.maxNanos()));
+        result.push_back(static_cast<int64_t>(histogram.percentile(0.50)));
+        result.push_back(static_cast<int64_t>(histogram.percentile(0.99)));
+    }
+
+    return result;
+}
+
+} // namespace perf
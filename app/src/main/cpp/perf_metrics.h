@@ -0,0 +1,115 @@
+#ifndef PERF_METRICS_H
+#define PERF_METRICS_H
+
+#include <android/trace.h>
+#include <atomic>
+#include <chrono>
+#include <cstdint>
+#include <vector>
+
+namespace perf {
+
+/**
+ * Latency metrics recorded on the hot paths.
+ * Order defines the layout of Metrics::snapshot(), keep PerfMetrics.java in sync.
+ */
+enum class Metric : size_t {
+    GetRow = 0,
+    GetCellValue,
+    JniGetRow,
+    JniGetCellValue,
+    Count
+};
+
+inline uint64_t nowNanos() {
+    return static_cast<uint64_t>(std::chrono::duration_cast<std::chrono::nanoseconds>(
+            std::chrono::steady_clock::now().time_since_epoch()).count());
+}
+
+/**
+ * Lock-free log2 histogram of nanosecond latencies.
+ * Bucket i holds samples in [2^(i-1), 2^i), so percentiles are upper bounds.
+ */
+class LatencyHistogram {
+public:
+    static constexpr size_t BUCKET_COUNT = 40; // 2^39 ns is ~9 minutes
+
+    void record(uint64_t nanos);
+    void reset();
+
+    uint64_t count() const { return samples.load(std::memory_order_relaxed); }
+    uint64_t totalNanos() const { return sum.load(std::memory_order_relaxed); }
+    uint64_t maxNanos() const { return max.load(std::memory_order_relaxed); }
+    uint64_t percentile(double fraction) const;
+
+private:
+    std::atomic<uint64_t> buckets[BUCKET_COUNT]{};
+    std::atomic<uint64_t> samples{0};
+    std::atomic<uint64_t> sum{0};
+    std::atomic<uint64_t> max{0};
+};
+
+class Metrics {
+public:
+    static Metrics& getInstance();
+
+    // Checked on every hot-path call, so kept inline and relaxed
+    static bool isEnabled() { return enabled.load(std::memory_order_relaxed); }
+    static void setEnabled(bool value) { enabled.store(value, std::memory_order_relaxed); }
+
+    void recordLatency(Metric metric, uint64_t nanos);
+    void recordLoad(uint64_t nanos, uint64_t bytes);
+    void reset();
+
+    /**
+     * Flat snapshot: [loadNanos, loadBytes] followed by
+     * [count, totalNanos, maxNanos, p50Nanos, p99Nanos] per Metric.
+     */
+    std::vector<int64_t> snapshot() const;
+
+private:
+    Metrics() = default;
+
+    inline static std::atomic<bool> enabled{false};
+
+    LatencyHistogram histograms[static_cast<size_t>(Metric::Count)];
+    std::atomic<uint64_t> loadNanos{0};
+    std::atomic<uint64_t> loadBytes{0};
+};
+
+/**
+ * Times a scope into a histogram and brackets it with an ATrace section
+ * so it shows up in Perfetto. Both halves are skipped when disabled.
+ */
+class ScopedTimer {
+public:
+    ScopedTimer(Metric metric, const char* traceName)
+            : metric(metric),
+              traced(ATrace_isEnabled()),
+              start(Metrics::isEnabled() ? nowNanos() : 0) {
+        if (traced) {
+            ATrace_beginSection(traceName);
+        }
+    }
+
+    ~ScopedTimer() {
+        if (traced) {
+            ATrace_endSection();
+        }
+        if (start != 0) {
+            Metrics::getInstance().recordLatency(metric, nowNanos() - start);
+        }
+    }
+
+    ScopedTimer(const ScopedTimer&) = delete;
+    ScopedTimer& operator=(const ScopedTimer&) = delete;
+
+private:
+    const Metric metric;
+    const bool traced;
+    const uint64_t start;
+};
+
+} // namespace perf
+
+#endif // PERF_METRICS_H
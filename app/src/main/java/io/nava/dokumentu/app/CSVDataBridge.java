@@ -19,6 +19,77 @@ public class CSVDataBridge {
     public static native int getColumnCount();
     public static native String getCellValue(int rowIndex, int columnIndex);
 
+    /**
+     * Stream the header plus the given rows of the loaded file into a new CSV/TSV file.
+     * Blocks until done, so call it from a background thread. Loading another file
+     * cancels the export, which then returns false.
+     *
+     * @param rowOrder row indices in output order, or null for file order
+     * @param columns file column indices in output order, or null for all columns
+     * @param listener optional progress listener, invoked on the calling thread
+     * @return true if the file was fully written; partial output is deleted otherwise
+     */
+    public static native boolean exportRows(String outputPath, int[] rowOrder, int[] columns,
+                                            boolean tabSeparated, ExportProgressListener listener);
+
+    /**
+     * Restrict and reorder the cells returned by {@link #getCSVRow} to the given file columns.
+     * Hidden columns are skipped natively without being decoded or marshalled.
+     *
+     * @param columns file column indices in display order, or null for all columns
+     */
+    public static native boolean setColumnProjection(int[] columns);
+
+    /**
+     * Build a hash index over one column so {@link #findRowByKey} is constant-time.
+     * Reuses an index persisted next to the file when it is still valid.
+     * Can take a while on large files, call it from a background thread.
+     * Loading another file cancels the build, which then returns false.
+     *
+     * @param persist also save the index next to the file for later loads
+     */
+    public static native boolean buildKeyIndex(int columnIndex, boolean persist);
+
+    /**
+     * Index of the first data row whose value in the column equals {@code value}, or -1.
+     * Builds the column's index on first use. Also returns -1 if loading another file
+     * cancels that build.
+     */
+    public static native int findRowByKey(int columnIndex, String value);
+
+    // Performance instrumentation
+    private static native void nativeSetMetricsEnabled(boolean enabled);
+    private static native void nativeResetMetrics();
+    private static native long[] nativeGetMetrics();
+
+    /**
+     * Toggle latency recording on the native and UI paths. Load metrics are always kept.
+     */
+    public static void setMetricsEnabled(boolean enabled) {
+        PerfMetrics.setEnabled(enabled);
+        nativeSetMetricsEnabled(enabled);
+    }
+
+    public static boolean isMetricsEnabled() {
+        return PerfMetrics.isEnabled();
+    }
+
+    public static void resetMetrics() {
+        PerfMetrics.reset();
+        nativeResetMetrics();
+    }
+
+    public static PerfMetrics getMetrics() {
+        return new PerfMetrics(nativeGetMetrics());
+    }
+
+    /**
+     * Progress callback for {@link #exportRows}. Return false to cancel the export.
+     */
+    public interface ExportProgressListener {
+        boolean onProgress(long rowsWritten, long totalRows);
+    }
+
     // Optional: Add a method to check if a file is currently loaded
     public static boolean isFileLoaded() {
         try {
@@ -1,29 +1,63 @@
 package io.nava.dokumentu.app;
 
+import androidx.appcompat.app.AlertDialog;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import android.content.Intent;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.util.Log;
 import android.view.MenuItem;
 import android.view.View;
+import android.widget.ArrayAdapter;
 import android.widget.Button;
+import android.widget.EditText;
+import android.widget.LinearLayout;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
 public class CSVViewerActivity extends AppCompatActivity {
 
     private static final String TAG = "CSVViewerActivity";
     public static final String EXTRA_FILE_PATH = "file_path";
     public static final String EXTRA_FILE_NAME = "file_name";
+    private static final String STATE_VISIBLE_COLUMNS = "visible_columns";
 
     private TextView fileInfoText;
     private Button openAnotherButton;
+    private Button exportButton;
+    private Button findButton;
     private RecyclerView csvRecyclerView;
     private SynchronizedCSVAdapter csvAdapter;
     private String currentFilePath;
+    private String currentFileInfo;
+    private String[] currentHeaders;
+
+    // Export and key lookups run off the UI thread, one at a time
+    // (export is cancelled if the activity goes away)
+    private final ExecutorService backgroundExecutor = Executors.newSingleThreadExecutor();
+    private volatile boolean exportCancelled = false;
+
+    // Performance overlay
+    private static final long METRICS_REFRESH_INTERVAL_MS = 500;
+    private TextView metricsOverlayText;
+    private PerfMetrics.FrameMonitor frameMonitor;
+    private final Handler metricsHandler = new Handler(Looper.getMainLooper());
+    private final Runnable metricsRefresh = new Runnable() {
+        @Override
+        public void run() {
+            metricsOverlayText.setText(CSVDataBridge.getMetrics().toDisplayString());
+            metricsHandler.postDelayed(this, METRICS_REFRESH_INTERVAL_MS);
+        }
+    };
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,6 +83,14 @@ public class CSVViewerActivity extends AppCompatActivity {
 
         if (currentFilePath != null) {
             loadAndDisplayCSV(currentFilePath, fileName);
+
+            // Reloading clears the native column projection; restore the one the user had
+            if (savedInstanceState != null && csvAdapter != null) {
+                int[] visibleColumns = savedInstanceState.getIntArray(STATE_VISIBLE_COLUMNS);
+                if (visibleColumns != null) {
+                    csvAdapter.setColumnProjection(visibleColumns);
+                }
+            }
         } else {
             showError("No file path provided");
             finish();
@@ -58,7 +100,12 @@ public class CSVViewerActivity extends AppCompatActivity {
     private void initializeViews() {
         fileInfoText = findViewById(R.id.file_info_text);
         openAnotherButton = findViewById(R.id.open_another_button);
+        exportButton = findViewById(R.id.export_button);
+        exportButton.setEnabled(false);
+        findButton = findViewById(R.id.find_button);
+        findButton.setEnabled(false);
         csvRecyclerView = findViewById(R.id.csv_recycler_view);
+        metricsOverlayText = findViewById(R.id.metrics_overlay_text);
 
         // Setup RecyclerView with optimizations
         csvRecyclerView.setLayoutManager(new LinearLayoutManager(this));
@@ -77,6 +124,45 @@ public class CSVViewerActivity extends AppCompatActivity {
             startActivity(intent);
             finish();
         });
+
+        exportButton.setOnClickListener(v -> showExportFormatDialog());
+        findButton.setOnClickListener(v -> showFindDialog());
+
+        fileInfoText.setOnLongClickListener(v -> {
+            setMetricsOverlayVisible(!CSVDataBridge.isMetricsEnabled());
+            return true;
+        });
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (csvAdapter != null) {
+            outState.putIntArray(STATE_VISIBLE_COLUMNS, csvAdapter.getColumnProjection());
+        }
+    }
+
+    private void setMetricsOverlayVisible(boolean visible) {
+        CSVDataBridge.setMetricsEnabled(visible);
+
+        if (visible) {
+            CSVDataBridge.resetMetrics();
+            if (frameMonitor == null) {
+                frameMonitor = new PerfMetrics.FrameMonitor(getDisplay().getRefreshRate());
+            }
+            frameMonitor.start();
+            metricsOverlayText.setVisibility(View.VISIBLE);
+            metricsHandler.post(metricsRefresh);
+        } else {
+            if (frameMonitor != null) {
+                frameMonitor.stop();
+            }
+            metricsHandler.removeCallbacks(metricsRefresh);
+            metricsOverlayText.setVisibility(View.GONE);
+        }
+
+        Toast.makeText(this, visible ? R.string.metrics_enabled : R.string.metrics_disabled,
+                Toast.LENGTH_SHORT).show();
     }
 
     private void loadAndDisplayCSV(String filePath, String fileName) {
@@ -115,12 +201,16 @@ public class CSVViewerActivity extends AppCompatActivity {
                 fileInfo = getString(R.string.file_info_compact, rowCount, columnCount);
             }
             fileInfoText.setText(fileInfo);
+            currentFileInfo = fileInfo;
+            currentHeaders = headers;
 
             // Setup synchronized CSV adapter
             csvAdapter = new SynchronizedCSVAdapter(this, headers, rowCount);
             csvRecyclerView.setAdapter(csvAdapter);
 
             openAnotherButton.setEnabled(true);
+            exportButton.setEnabled(true);
+            findButton.setEnabled(true);
 
             Toast.makeText(this, R.string.file_loaded_successfully, Toast.LENGTH_SHORT).show();
         } else {
@@ -128,12 +218,154 @@ public class CSVViewerActivity extends AppCompatActivity {
         }
     }
 
+    private void showFindDialog() {
+        LinearLayout content = new LinearLayout(this);
+        content.setOrientation(LinearLayout.VERTICAL);
+        int padding = (int) (16 * getResources().getDisplayMetrics().density);
+        content.setPadding(padding, padding / 2, padding, 0);
+
+        Spinner columnSpinner = new Spinner(this);
+        ArrayAdapter<String> columnAdapter = new ArrayAdapter<>(this,
+                android.R.layout.simple_spinner_item, currentHeaders);
+        columnAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        columnSpinner.setAdapter(columnAdapter);
+        content.addView(columnSpinner);
+
+        EditText valueInput = new EditText(this);
+        valueInput.setHint(R.string.find_value_hint);
+        valueInput.setSingleLine(true);
+        content.addView(valueInput);
+
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.find_row_title)
+                .setView(content)
+                .setPositiveButton(R.string.find_action, (dialog, which) ->
+                        jumpToKey(columnSpinner.getSelectedItemPosition(), valueInput.getText().toString()))
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void jumpToKey(int columnIndex, String value) {
+        if (columnIndex < 0 || columnIndex >= currentHeaders.length) {
+            return;
+        }
+        String columnName = currentHeaders[columnIndex];
+
+        // First lookup on a column builds its index, which needs the source mapped
+        findButton.setEnabled(false);
+        exportButton.setEnabled(false);
+        openAnotherButton.setEnabled(false);
+        fileInfoText.setText(getString(R.string.indexing_column, columnName));
+
+        backgroundExecutor.execute(() -> {
+            // Returns -1 early if a reload (rotation, new file) cancels the build
+            int rowIndex = CSVDataBridge.findRowByKey(columnIndex, value.trim());
+
+            runOnUiThread(() -> {
+                if (isFinishing() || isDestroyed()) {
+                    return;
+                }
+                fileInfoText.setText(currentFileInfo);
+                findButton.setEnabled(true);
+                exportButton.setEnabled(true);
+                openAnotherButton.setEnabled(true);
+
+                if (rowIndex >= 0) {
+                    // +1 for the header row at adapter position 0
+                    ((LinearLayoutManager) csvRecyclerView.getLayoutManager())
+                            .scrollToPositionWithOffset(rowIndex + 1, 0);
+                } else {
+                    Toast.makeText(this, getString(R.string.key_not_found, columnName, value),
+                            Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
+    }
+
+    private void showExportFormatDialog() {
+        String[] formats = {
+                getString(R.string.export_format_csv),
+                getString(R.string.export_format_tsv)
+        };
+        new AlertDialog.Builder(this)
+                .setTitle(R.string.export_format_title)
+                .setItems(formats, (dialog, which) -> exportCurrentView(which == 1))
+                .setNegativeButton(android.R.string.cancel, null)
+                .show();
+    }
+
+    private void exportCurrentView(boolean tabSeparated) {
+        File outputDir = getExternalFilesDir(null);
+        if (outputDir == null) {
+            outputDir = getFilesDir();
+        }
+        String extension = tabSeparated ? ".tsv" : ".csv";
+        File outputFile = new File(outputDir, "export_" + System.currentTimeMillis() + extension);
+        String outputPath = outputFile.getAbsolutePath();
+        // Hidden and reordered columns are exported the way they are displayed
+        int[] columns = csvAdapter.getColumnProjection();
+
+        // One background job at a time. A reload (rotation, another file) cancels the
+        // export natively; onDestroy cancels it through the progress listener.
+        exportButton.setEnabled(false);
+        findButton.setEnabled(false);
+        openAnotherButton.setEnabled(false);
+        fileInfoText.setText(getString(R.string.export_progress, 0));
+
+        backgroundExecutor.execute(() -> {
+            int[] lastPercent = {-1};
+            // null row order = rows as currently displayed (file order)
+            boolean success = CSVDataBridge.exportRows(outputPath, null, columns, tabSeparated,
+                    (rowsWritten, totalRows) -> {
+                        int percent = totalRows > 0 ? (int) (rowsWritten * 100 / totalRows) : 100;
+                        // Called every few thousand rows; only post when the text changes
+                        if (percent != lastPercent[0] && !exportCancelled) {
+                            lastPercent[0] = percent;
+                            runOnUiThread(() -> fileInfoText.setText(getString(R.string.export_progress, percent)));
+                        }
+                        return !exportCancelled;
+                    });
+
+            Log.d(TAG, "Export to " + outputPath + (success ? " finished" : " failed"));
+
+            runOnUiThread(() -> {
+                if (exportCancelled || isDestroyed()) {
+                    return;
+                }
+                fileInfoText.setText(currentFileInfo);
+                exportButton.setEnabled(true);
+                findButton.setEnabled(true);
+                openAnotherButton.setEnabled(true);
+                if (success) {
+                    Toast.makeText(this, getString(R.string.export_complete, outputFile.getName()),
+                            Toast.LENGTH_LONG).show();
+                } else {
+                    Toast.makeText(this, R.string.export_failed, Toast.LENGTH_LONG).show();
+                }
+            });
+        });
+    }
+
     private void showError(String message) {
         fileInfoText.setText(message);
         openAnotherButton.setEnabled(true);
         Toast.makeText(this, message, Toast.LENGTH_LONG).show();
     }
 
+    @Override
+    protected void onDestroy() {
+        exportCancelled = true;
+        backgroundExecutor.shutdown();
+        if (CSVDataBridge.isMetricsEnabled()) {
+            if (frameMonitor != null) {
+                frameMonitor.stop();
+            }
+            metricsHandler.removeCallbacks(metricsRefresh);
+            CSVDataBridge.setMetricsEnabled(false);
+        }
+        super.onDestroy();
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         if (item.getItemId() == android.R.id.home) {
@@ -138,7 +138,11 @@ public class MainActivity extends AppCompatActivity {
 
             // Create temp file in app's private directory
             File tempFile = new File(getCacheDir(), "temp_csv_file.csv");
-            FileOutputStream outputStream = new FileOutputStream(tempFile);
+            // Copy next to it and rename over it: the previous file may still be mapped
+            // by a cancelled export or index build, and truncating it in place would
+            // fault those reads (SIGBUS). The old mapping keeps its own inode this way.
+            File partialFile = new File(getCacheDir(), "temp_csv_file.csv.part");
+            FileOutputStream outputStream = new FileOutputStream(partialFile);
 
             byte[] buffer = new byte[8192];
             int bytesRead;
@@ -149,6 +153,12 @@ public class MainActivity extends AppCompatActivity {
             inputStream.close();
             outputStream.close();
 
+            if (!partialFile.renameTo(tempFile)) {
+                Log.e(TAG, "Failed to move copied file into place");
+                partialFile.delete();
+                return null;
+            }
+
             return tempFile.getAbsolutePath();
 
         } catch (IOException e) {
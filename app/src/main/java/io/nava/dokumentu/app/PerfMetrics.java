@@ -0,0 +1,220 @@
+package io.nava.dokumentu.app;
+
+import android.view.Choreographer;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Snapshot of load, native access and UI binding performance.
+ * Native numbers come from perf::Metrics; bind times and dropped frames are recorded here.
+ */
+public final class PerfMetrics {
+
+    // Layout of CSVDataBridge.nativeGetMetrics(), must match perf::Metrics::snapshot()
+    private static final int NATIVE_LOAD_FIELDS = 2;
+    private static final int LATENCY_FIELDS = 5;
+
+    private static volatile boolean enabled = false;
+    private static final LatencyHistogram bindHistogram = new LatencyHistogram();
+    private static final AtomicLong framesObserved = new AtomicLong();
+    private static final AtomicLong framesDropped = new AtomicLong();
+
+    public final long loadNanos;
+    public final long loadBytes;
+    public final Latency getRow;
+    public final Latency getCellValue;
+    public final Latency jniGetRow;
+    public final Latency jniGetCellValue;
+    public final Latency bindViewHolder;
+    public final long frames;
+    public final long droppedFrames;
+
+    PerfMetrics(long[] nativeMetrics) {
+        long[] values = nativeMetrics != null ? nativeMetrics : new long[NATIVE_LOAD_FIELDS + 4 * LATENCY_FIELDS];
+        loadNanos = values[0];
+        loadBytes = values[1];
+        getRow = Latency.fromNative(values, 0);
+        getCellValue = Latency.fromNative(values, 1);
+        jniGetRow = Latency.fromNative(values, 2);
+        jniGetCellValue = Latency.fromNative(values, 3);
+        bindViewHolder = bindHistogram.toLatency();
+        frames = framesObserved.get();
+        droppedFrames = framesDropped.get();
+    }
+
+    public double loadBytesPerSecond() {
+        return loadNanos > 0 ? loadBytes * 1e9 / loadNanos : 0;
+    }
+
+    public String toDisplayString() {
+        return String.format(Locale.US,
+                "load %.1f ms  %.1f MB/s\n" +
+                        "getRow      %s\n" +
+                        "getCell     %s\n" +
+                        "jni getRow  %s\n" +
+                        "jni getCell %s\n" +
+                        "bind        %s\n" +
+                        "frames %d  dropped %d",
+                loadNanos / 1e6, loadBytesPerSecond() / 1e6,
+                getRow, getCellValue, jniGetRow, jniGetCellValue, bindViewHolder,
+                frames, droppedFrames);
+    }
+
+    // Recording (package-private, driven by CSVDataBridge and the viewer)
+
+    static boolean isEnabled() {
+        return enabled;
+    }
+
+    static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    static void reset() {
+        bindHistogram.reset();
+        framesObserved.set(0);
+        framesDropped.set(0);
+    }
+
+    /**
+     * Start of an onBindViewHolder measurement, 0 when disabled.
+     */
+    static long startBind() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    static void endBind(long startNanos) {
+        if (startNanos != 0) {
+            bindHistogram.record(System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Latency summary for one metric, percentiles are log2 bucket upper bounds.
+     */
+    public static final class Latency {
+        public final long count;
+        public final long totalNanos;
+        public final long maxNanos;
+        public final long p50Nanos;
+        public final long p99Nanos;
+
+        Latency(long count, long totalNanos, long maxNanos, long p50Nanos, long p99Nanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+        }
+
+        static Latency fromNative(long[] values, int metric) {
+            int base = NATIVE_LOAD_FIELDS + metric * LATENCY_FIELDS;
+            return new Latency(values[base], values[base + 1], values[base + 2],
+                    values[base + 3], values[base + 4]);
+        }
+
+        public long averageNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "n=%d avg=%.1fus p50=%.1fus p99=%.1fus max=%.1fus",
+                    count, averageNanos() / 1e3, p50Nanos / 1e3, p99Nanos / 1e3, maxNanos / 1e3);
+        }
+    }
+
+    /**
+     * Java counterpart of perf::LatencyHistogram.
+     */
+    private static final class LatencyHistogram {
+        private static final int BUCKET_COUNT = 40;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        void record(long nanos) {
+            int bucket = Math.min(64 - Long.numberOfLeadingZeros(Math.max(nanos, 0)), BUCKET_COUNT - 1);
+            buckets.incrementAndGet(bucket);
+            count.incrementAndGet();
+            total.addAndGet(nanos);
+            max.accumulateAndGet(nanos, Math::max);
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                buckets.set(i, 0);
+            }
+            count.set(0);
+            total.set(0);
+            max.set(0);
+        }
+
+        long percentile(double fraction) {
+            long samples = count.get();
+            if (samples == 0) {
+                return 0;
+            }
+            long target = (long) (fraction * samples);
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += buckets.get(i);
+                if (seen > target) {
+                    return Math.min(1L << i, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        Latency toLatency() {
+            return new Latency(count.get(), total.get(), max.get(), percentile(0.50), percentile(0.99));
+        }
+    }
+
+    /**
+     * Counts frames and dropped frames from Choreographer vsync callbacks.
+     * A frame is dropped for every refresh interval missed between callbacks.
+     */
+    static final class FrameMonitor implements Choreographer.FrameCallback {
+        private final long frameIntervalNanos;
+        private long lastFrameNanos = 0;
+        private boolean running = false;
+
+        FrameMonitor(float refreshRate) {
+            frameIntervalNanos = (long) (1e9 / (refreshRate > 0 ? refreshRate : 60f));
+        }
+
+        void start() {
+            if (!running) {
+                running = true;
+                lastFrameNanos = 0;
+                Choreographer.getInstance().postFrameCallback(this);
+            }
+        }
+
+        void stop() {
+            running = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (!running) {
+                return;
+            }
+            if (lastFrameNanos != 0) {
+                long missed = Math.round((double) (frameTimeNanos - lastFrameNanos) / frameIntervalNanos) - 1;
+                framesObserved.incrementAndGet();
+                if (missed > 0) {
+                    framesDropped.addAndGet(missed);
+                }
+            }
+            lastFrameNanos = frameTimeNanos;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+}
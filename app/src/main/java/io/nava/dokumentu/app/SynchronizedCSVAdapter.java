@@ -1,6 +1,7 @@
 package io.nava.dokumentu.app;
 
 import android.content.Context;
+import android.os.Trace;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -8,6 +9,7 @@ import android.widget.HorizontalScrollView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.appcompat.app.AlertDialog;
 import androidx.recyclerview.widget.RecyclerView;
 import java.util.ArrayList;
 import java.util.List;
@@ -22,6 +24,9 @@ public class SynchronizedCSVAdapter extends RecyclerView.Adapter<SynchronizedCSV
     private final int dataRowCount;
     private final CSVViewerActivity csvViewerActivity;
 
+    // Visible file columns in display order, pushed down to the native row fetch
+    private int[] visibleColumns;
+
     // Synchronized scrolling management
     private final List<HorizontalScrollView> scrollViews = new ArrayList<>();
     private boolean isScrolling = false;
@@ -31,6 +36,7 @@ public class SynchronizedCSVAdapter extends RecyclerView.Adapter<SynchronizedCSV
         this.csvViewerActivity = csvViewerActivity;
         this.headers = headers;
         this.dataRowCount = dataRowCount;
+        this.visibleColumns = allColumns();
     }
 
     @Override
@@ -54,11 +60,18 @@ public class SynchronizedCSVAdapter extends RecyclerView.Adapter<SynchronizedCSV
 
     @Override
     public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
-        if (holder instanceof HeaderViewHolder) {
-            ((HeaderViewHolder) holder).bind(headers);
-        } else if (holder instanceof DataViewHolder) {
-            int dataRowIndex = position - 1; // Account for header row
-            ((DataViewHolder) holder).bind(dataRowIndex);
+        Trace.beginSection("SynchronizedCSVAdapter.onBindViewHolder");
+        long bindStart = PerfMetrics.startBind();
+        try {
+            if (holder instanceof HeaderViewHolder) {
+                ((HeaderViewHolder) holder).bind(headers);
+            } else if (holder instanceof DataViewHolder) {
+                int dataRowIndex = position - 1; // Account for header row
+                ((DataViewHolder) holder).bind(dataRowIndex);
+            }
+        } finally {
+            PerfMetrics.endBind(bindStart);
+            Trace.endSection();
         }
     }
 
@@ -89,6 +102,114 @@ public class SynchronizedCSVAdapter extends RecyclerView.Adapter<SynchronizedCSV
         }
     }
 
+    // Column projection management
+    private int[] allColumns() {
+        int[] columns = new int[headers.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = i;
+        }
+        return columns;
+    }
+
+    private boolean showsAllColumns() {
+        if (visibleColumns.length != headers.length) {
+            return false;
+        }
+        for (int i = 0; i < visibleColumns.length; i++) {
+            if (visibleColumns[i] != i) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visible file columns in display order, or null when every column is shown in file order.
+     */
+    public int[] getColumnProjection() {
+        return showsAllColumns() ? null : visibleColumns.clone();
+    }
+
+    /**
+     * Restore a projection from {@link #getColumnProjection()}, e.g. after the file was reloaded.
+     */
+    public void setColumnProjection(int[] columns) {
+        if (columns == null || columns.length == 0) {
+            showAllColumns();
+            return;
+        }
+        for (int column : columns) {
+            if (column < 0 || column >= headers.length) {
+                return; // saved for a different file
+            }
+        }
+        visibleColumns = columns.clone();
+        applyColumnProjection();
+    }
+
+    private void applyColumnProjection() {
+        // null keeps the native side on its plain full-row path
+        CSVDataBridge.setColumnProjection(getColumnProjection());
+        notifyDataSetChanged();
+    }
+
+    public void hideColumn(int position) {
+        if (visibleColumns.length <= 1 || position < 0 || position >= visibleColumns.length) {
+            return;
+        }
+        int[] columns = new int[visibleColumns.length - 1];
+        System.arraycopy(visibleColumns, 0, columns, 0, position);
+        System.arraycopy(visibleColumns, position + 1, columns, position, columns.length - position);
+        visibleColumns = columns;
+        applyColumnProjection();
+    }
+
+    public void moveColumn(int from, int to) {
+        if (from < 0 || to < 0 || from >= visibleColumns.length || to >= visibleColumns.length || from == to) {
+            return;
+        }
+        int column = visibleColumns[from];
+        if (from < to) {
+            System.arraycopy(visibleColumns, from + 1, visibleColumns, from, to - from);
+        } else {
+            System.arraycopy(visibleColumns, to, visibleColumns, to + 1, from - to);
+        }
+        visibleColumns[to] = column;
+        applyColumnProjection();
+    }
+
+    public void showAllColumns() {
+        visibleColumns = allColumns();
+        applyColumnProjection();
+    }
+
+    private void showColumnMenu(int position) {
+        List<String> labels = new ArrayList<>();
+        List<Runnable> actions = new ArrayList<>();
+
+        if (position > 0) {
+            labels.add(context.getString(R.string.column_move_left));
+            actions.add(() -> moveColumn(position, position - 1));
+        }
+        if (position < visibleColumns.length - 1) {
+            labels.add(context.getString(R.string.column_move_right));
+            actions.add(() -> moveColumn(position, position + 1));
+        }
+        if (visibleColumns.length > 1) {
+            labels.add(context.getString(R.string.column_hide));
+            actions.add(() -> hideColumn(position));
+        }
+        if (!showsAllColumns()) {
+            labels.add(context.getString(R.string.column_show_all));
+            actions.add(this::showAllColumns);
+        }
+
+        new AlertDialog.Builder(context)
+                .setTitle(headers[visibleColumns[position]])
+                .setItems(labels.toArray(new String[0]), (dialog, which) -> actions.get(which).run())
+                .show();
+    }
+
     // Helper method to get smart truncated header text
     private String getSmartTruncatedHeader(String header) {
         if (header == null || header.length() <= 12) {
@@ -146,13 +267,14 @@ public class SynchronizedCSVAdapter extends RecyclerView.Adapter<SynchronizedCSV
 
             LayoutInflater inflater = LayoutInflater.from(context);
 
-            for (String header : headers) {
+            for (int i = 0; i < visibleColumns.length; i++) {
+                int position = i;
                 TextView textView = (TextView) inflater.inflate(R.layout.item_csv_cell_header, container, false);
-                textView.setText(getSmartTruncatedHeader(header));
+                textView.setText(getSmartTruncatedHeader(headers[visibleColumns[i]]));
 
-                // Set tooltip for full header text
+                // Long press shows the full header with move/hide options
                 textView.setOnLongClickListener(v -> {
-                    // Could show a toast with full header text
+                    showColumnMenu(position);
                     return true;
                 });
 
@@ -178,7 +300,7 @@ public class SynchronizedCSVAdapter extends RecyclerView.Adapter<SynchronizedCSV
             LinearLayout container = (LinearLayout) scrollView.getChildAt(0);
             container.removeAllViews();
 
-            // Get row data from native layer
+            // Get row data from native layer, already projected to visibleColumns
             String[] rowData = csvViewerActivity.getCSVRow(rowIndex);
 
             if (rowData != null) {